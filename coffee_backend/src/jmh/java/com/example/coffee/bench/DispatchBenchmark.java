@@ -0,0 +1,104 @@
+package com.example.coffee.bench;
+
+import com.example.coffee.dispatch.PendingOrderQueue;
+import com.example.coffee.model.Order;
+import com.example.coffee.service.PriorityService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One assignOrders tick (score + order + pick for 3 idle baristas) at different queue depths.
+ *
+ * fullScanTick is what assignOrders did before the resident queue: rescore every pending order,
+ * sort the whole list, take the top. queueTick is the current path: rescore only the orders that
+ * crossed a score boundary, poll the top from the heap. Each tick moves the clock 5 seconds and,
+ * for the queue, re-adds the polled orders as new arrivals so the depth stays constant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchBenchmark {
+
+    private static final int IDLE_BARISTAS = 3;
+    private static final int[] PREPS = {1, 2, 4, 6};
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int pendingOrders;
+
+    private MutableClock clock;
+    private PriorityService priorityService;
+    private List<Order> pendingList;
+    private PendingOrderQueue queue;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        clock = new MutableClock(Instant.parse("2024-01-01T08:00:00Z"), ZoneId.of("UTC"));
+        priorityService = new PriorityService(clock);
+        SplittableRandom rand = new SplittableRandom(42);
+        pendingList = new ArrayList<>(pendingOrders);
+        queue = new PendingOrderQueue();
+        for (int i = 0; i < pendingOrders; i++) {
+            Order order = newOrder(LocalDateTime.now(clock).minusSeconds(rand.nextInt(900)), rand);
+            pendingList.add(order);
+            queue.add(copy(order), priorityService);
+        }
+    }
+
+    @Benchmark
+    public void fullScanTick(Blackhole bh) {
+        clock.advanceSeconds(5);
+        List<Order> pending = new ArrayList<>(pendingList); // stands in for findByStatus(PENDING)
+        for (Order order : pending) {
+            order.setPriorityScore(priorityService.calculatePriority(order));
+        }
+        pending.sort(Comparator.comparingDouble(Order::getPriorityScore).reversed());
+        for (int b = 0; b < IDLE_BARISTAS; b++) {
+            bh.consume(pending.get(b));
+        }
+    }
+
+    @Benchmark
+    public void queueTick(Blackhole bh) {
+        clock.advanceSeconds(5);
+        bh.consume(queue.rescoreDue(LocalDateTime.now(clock), priorityService));
+        for (int b = 0; b < IDLE_BARISTAS; b++) {
+            Order assigned = queue.poll();
+            bh.consume(assigned);
+            // Replace it with a fresh arrival so the depth stays at pendingOrders
+            Order arrival = newOrder(LocalDateTime.now(clock), null);
+            arrival.setPrepTimeMinutes(assigned.getPrepTimeMinutes());
+            queue.add(arrival, priorityService);
+        }
+    }
+
+    private Order newOrder(LocalDateTime arrival, SplittableRandom rand) {
+        Order order = new Order();
+        order.setId(nextId++);
+        order.setArrivalTime(arrival);
+        order.setPrepTimeMinutes(rand == null ? 2 : PREPS[rand.nextInt(PREPS.length)]);
+        order.setLoyaltyMember(rand != null && rand.nextInt(5) == 0);
+        return order;
+    }
+
+    private Order copy(Order order) {
+        Order copy = new Order();
+        copy.setId(order.getId());
+        copy.setArrivalTime(order.getArrivalTime());
+        copy.setPrepTimeMinutes(order.getPrepTimeMinutes());
+        copy.setLoyaltyMember(order.isLoyaltyMember());
+        return copy;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.coffee.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load against a running backend, for comparing threading modes.
+ *
+ * Each of the given number of clients sends a request, waits for the answer and sends the next:
+ * by default 80% GET /orders/query (a DB read) and 20% POST /orders (score + INSERT). The first
+ * 10% of the run is warm-up and is not counted. Prints throughput and latency percentiles.
+ *
+ * Compare platform vs virtual threads by running the same load against each:
+ *
+ *     mvn spring-boot:run                      (platform threads, the default)
+ *     mvn -Pvirtual-threads spring-boot:run    (virtual threads, JDK 21+)
+ *     mvn -Pjmh test-compile exec:exec -Dbench.main="com.example.coffee.bench.HttpLoadTest http://localhost:8085 200 60"
+ *
+ * Arguments: baseUrl [clients=200] [seconds=60] [writePercent=20]. Use a client count well above
+ * Tomcat's 200 platform threads to see where the modes diverge.
+ */
+public class HttpLoadTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8085";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        int writePercent = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long start = System.nanoTime();
+        long measureFrom = start + Duration.ofSeconds(seconds).toNanos() / 10;
+        long end = start + Duration.ofSeconds(seconds).toNanos();
+
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+        int[] counts = new int[clients];
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            long[] samples = new long[1 << 16];
+            latencies.add(samples);
+            Thread thread = new Thread(() -> {
+                SplittableRandom rand = new SplittableRandom(client);
+                long[] own = samples;
+                int n = 0;
+                try {
+                    while (true) {
+                        long sent = System.nanoTime();
+                        if (sent >= end) break;
+                        HttpRequest request = rand.nextInt(100) < writePercent
+                                ? createOrder(baseUrl, rand)
+                                : HttpRequest.newBuilder(URI.create(baseUrl + "/orders/query?size=50")).GET().build();
+                        boolean ok;
+                        try {
+                            ok = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        long took = System.nanoTime() - sent;
+                        if (sent < measureFrom) continue;
+                        if (!ok) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (n == own.length) {
+                            own = Arrays.copyOf(own, n * 2);
+                            latencies.set(client, own);
+                        }
+                        own[n++] = took;
+                    }
+                } finally {
+                    counts[client] = n;
+                    done.countDown();
+                }
+            }, "load-client-" + c);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        int total = 0;
+        for (int n : counts) total += n;
+        long[] all = new long[total];
+        int at = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies.get(c), 0, all, at, counts[c]);
+            at += counts[c];
+        }
+        Arrays.sort(all);
+        double measuredSeconds = (end - measureFrom) / 1e9;
+
+        System.out.printf("clients=%d seconds=%d writes=%d%%%n", clients, seconds, writePercent);
+        System.out.printf("requests=%d errors=%d throughput=%.1f req/s%n", total, errors.get(), total / measuredSeconds);
+        System.out.printf("p50=%.2f ms  p99=%.2f ms  p99.9=%.2f ms  max=%.2f ms%n",
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999), percentile(all, 1.0));
+    }
+
+    private static HttpRequest createOrder(String baseUrl, SplittableRandom rand) {
+        String[] drinks = {"Espresso", "Americano", "Cappuccino", "Latte", "Mocha"};
+        int[] preps = {2, 2, 4, 4, 6};
+        int drink = rand.nextInt(drinks.length);
+        String body = String.format("{\"customerName\":\"Load %d\",\"drinkType\":\"%s\",\"prepTimeMinutes\":%d,\"price\":150}",
+                rand.nextInt(1000), drinks[drink], preps[drink]);
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/orders"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    // In milliseconds
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.coffee.bench;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+// Clock the benchmarks can move forward, so scoring sees wait times advance between ticks
+final class MutableClock extends Clock {
+
+    private final ZoneId zone;
+    private Instant now;
+
+    MutableClock(Instant start, ZoneId zone) {
+        this.now = start;
+        this.zone = zone;
+    }
+
+    void advanceSeconds(long seconds) {
+        now = now.plusSeconds(seconds);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new MutableClock(now, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return now;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.coffee.bench;
+
+import com.example.coffee.dispatch.ScoringStrategy;
+import com.example.coffee.model.Order;
+import com.example.coffee.service.PriorityService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw throughput of PriorityService.calculatePriority across the wait-time range (0-15 minutes),
+ * and of the compiled ScoringStrategy scoring the same orders one by one vs as one batch of arrays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriorityServiceBenchmark {
+
+    private static final int ORDERS = 1024;
+
+    private PriorityService priorityService;
+    private Order[] orders;
+    private int next;
+    private int[] waits;
+    private int[] preps;
+    private boolean[] loyal;
+    private double[] scores;
+
+    @Setup
+    public void setup() {
+        Clock clock = Clock.fixed(Instant.parse("2024-01-01T08:00:00Z"), ZoneId.of("UTC"));
+        priorityService = new PriorityService(clock);
+        int[] prepChoices = {1, 2, 4, 6};
+        orders = new Order[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setId((long) i);
+            order.setArrivalTime(LocalDateTime.now(clock).minusSeconds(i % 900));
+            order.setPrepTimeMinutes(prepChoices[i % prepChoices.length]);
+            order.setLoyaltyMember(i % 5 == 0);
+            orders[i] = order;
+        }
+        waits = new int[ORDERS];
+        preps = new int[ORDERS];
+        loyal = new boolean[ORDERS];
+        scores = new double[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            waits[i] = (int) orders[i].getWaitTimeMinutes(clock);
+            preps[i] = orders[i].getPrepTimeMinutes();
+            loyal[i] = orders[i].isLoyaltyMember();
+        }
+    }
+
+    @Benchmark
+    public double calculatePriority() {
+        Order order = orders[next++ & (ORDERS - 1)];
+        return priorityService.calculatePriority(order);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public double[] scoreEach() {
+        ScoringStrategy strategy = priorityService.getStrategy();
+        for (int i = 0; i < ORDERS; i++) {
+            scores[i] = strategy.score(waits[i], preps[i], loyal[i]);
+        }
+        return scores;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public double[] scoreAll() {
+        priorityService.getStrategy().scoreAll(ORDERS, waits, preps, loyal, scores);
+        return scores;
+    }
+}
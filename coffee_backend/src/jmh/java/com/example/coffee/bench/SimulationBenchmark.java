@@ -0,0 +1,130 @@
+package com.example.coffee.bench;
+
+import com.example.coffee.repo.OrderJournal;
+import com.example.coffee.service.PriorityService;
+import com.example.coffee.service.SimulationService;
+import com.example.coffee.simulation.ArrivalSource;
+import com.example.coffee.simulation.SimulationRun;
+import com.example.coffee.simulation.TraceArrivalSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.time.Clock;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one simulated rush.
+ *
+ * scenario is a full test case as the API runs it (generate 200-300 orders, run, build the report);
+ * execute replays an already loaded run, which is the event loop alone. Run with -prof gc
+ * (the profile default) to see the allocation rate; execute should report ~0 B/op.
+ *
+ * streamOrders feeds a day of orders (TRACE_ORDERS of them) from an ArrivalSource, and streamCsv
+ * the same from CSV text: per-order time is the trace replay rate, the difference is parsing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmark {
+
+    private SimulationService simulationService;
+    private ForkJoinPool singleThread;
+    private SimulationRun preloaded;
+    private long seed;
+
+    private static final int TRACE_ORDERS = 100_000;
+    private SimulationRun streamed;
+    private String csvTrace;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        simulationService = new SimulationService(new PriorityService(Clock.systemDefaultZone()), OrderJournal.disabled());
+        singleThread = new ForkJoinPool(1);
+
+        SplittableRandom rand = new SplittableRandom(42);
+        int[] preps = {1, 2, 4, 4, 6};
+        preloaded = new SimulationRun(300, 3);
+        long t = 0;
+        for (int i = 0; i < 300; i++) {
+            t += rand.nextInt(72); // ~300 orders over 3 hours
+            preloaded.addOrder(t, preps[rand.nextInt(preps.length)], rand.nextDouble() > 0.8);
+        }
+
+        streamed = new SimulationRun(0, 8);
+        String[] drinks = {"Cold Brew", "Espresso", "Latte", "Cappuccino", "Specialty"};
+        StringBuilder csv = new StringBuilder("arrival_time,drink_type,loyalty_member\n");
+        SplittableRandom traceRand = new SplittableRandom(7);
+        for (int i = 0, second = 0; i < TRACE_ORDERS; i++) {
+            second += traceRand.nextInt(20);
+            csv.append(second).append(',').append(drinks[traceRand.nextInt(drinks.length)]).append(',')
+                    .append(traceRand.nextDouble() > 0.8).append('\n');
+        }
+        csvTrace = csv.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        singleThread.shutdown();
+    }
+
+    @Benchmark
+    public SimulationService.SimulationSummary scenario() {
+        return simulationService.runScenarios(1, seed++, singleThread);
+    }
+
+    @Benchmark
+    public int execute() {
+        preloaded.execute();
+        return preloaded.getComplaints();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int streamOrders() {
+        SplittableRandom rand = new SplittableRandom(7);
+        int[] preps = {1, 2, 4, 4, 6};
+        streamed.execute(new ArrivalSource() {
+            int i;
+            long second;
+            int prep;
+            boolean loyal;
+
+            @Override
+            public boolean next() {
+                if (i++ == TRACE_ORDERS) return false;
+                second += rand.nextInt(20);
+                prep = preps[rand.nextInt(preps.length)];
+                loyal = rand.nextDouble() > 0.8;
+                return true;
+            }
+
+            @Override
+            public long arrivalSecond() {
+                return second;
+            }
+
+            @Override
+            public int prepMinutes() {
+                return prep;
+            }
+
+            @Override
+            public boolean loyal() {
+                return loyal;
+            }
+        });
+        return streamed.getServed();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int streamCsv() {
+        streamed.execute(new TraceArrivalSource(new StringReader(csvTrace)));
+        return streamed.getServed();
+    }
+}
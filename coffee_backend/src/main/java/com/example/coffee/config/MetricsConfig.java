@@ -0,0 +1,36 @@
+package com.example.coffee.config;
+
+import com.example.coffee.repo.WriteBehindBuffer;
+import com.example.coffee.service.LiveBoardService;
+import com.example.coffee.service.OrderIntakeService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Backlog gauges of the stages around dispatch (see DispatchMetrics for dispatch itself).
+ * Customer cache meters are bound by CustomerService.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder pipelineMetrics(WriteBehindBuffer writeBehind, OrderIntakeService intake, LiveBoardService liveBoard) {
+        return registry -> {
+            Gauge.builder("coffee.write_behind.pending", writeBehind, WriteBehindBuffer::pendingCount)
+                    .description("Rows marked dirty and not flushed yet")
+                    .register(registry);
+            FunctionCounter.builder("coffee.write_behind.conflicts", writeBehind, WriteBehindBuffer::getVersionConflicts)
+                    .description("Rows dropped on flush because of a version conflict")
+                    .register(registry);
+            Gauge.builder("coffee.intake.queued", intake, OrderIntakeService::queued)
+                    .description("Orders accepted on /orders/intake and not created yet")
+                    .register(registry);
+            Gauge.builder("coffee.board.subscribers", liveBoard, LiveBoardService::subscriberCount)
+                    .description("Open live board SSE connections")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.coffee.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+
+/**
+ * Tomcat, the @Scheduled task scheduler and simulation job threads follow spring.threads.virtual.enabled.
+ * Boot only honours it on JDK 21+, and silently stays on platform threads otherwise, so this logs
+ * the mode that actually took effect.
+ *
+ * The dispatch, completion, intake and board threads are always platform threads: each one is a
+ * single long-lived loop, which gains nothing from being virtual.
+ */
+@Slf4j
+@Configuration
+public class ThreadingConfig {
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportThreadingMode(ApplicationReadyEvent event) {
+        Environment environment = event.getApplicationContext().getEnvironment();
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("Running on virtual threads (Tomcat, @Scheduled, simulation jobs)");
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("spring.threads.virtual.enabled is set, but JDK {} has no virtual threads; running on platform threads",
+                    Runtime.version().feature());
+        } else {
+            log.info("Running on platform threads");
+        }
+    }
+}
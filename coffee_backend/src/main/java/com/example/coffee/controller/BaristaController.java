@@ -1,11 +1,19 @@
 package com.example.coffee.controller;
 
+import com.example.coffee.dispatch.AssignmentMode;
+import com.example.coffee.dispatch.InFlightOrders;
 import com.example.coffee.model.Barista;
+import com.example.coffee.model.Order;
 import com.example.coffee.service.BaristaService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -17,7 +25,43 @@ public class BaristaController {
     private final BaristaService baristaService;
 
     @GetMapping
-    public ResponseEntity<List<Barista>> getAllBaristas() {
+    public ResponseEntity<List<Barista>> getAllBaristas(@RequestParam(required = false) Long stationId) {
+        if (stationId != null) {
+            return baristaService.getBaristas(stationId)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        }
         return ResponseEntity.ok(baristaService.getAllBaristas());
     }
+
+    // Adds a barista to a station (the default one if stationId is missing)
+    @PostMapping
+    public ResponseEntity<Barista> addBarista(@RequestBody Barista barista) {
+        return ResponseEntity.ok(baristaService.addBarista(barista));
+    }
+
+    // Who is making what, with when each drink is due; from memory, no query
+    @GetMapping("/in-flight")
+    public ResponseEntity<List<InFlightOrders.Assignment>> getInFlight() {
+        return ResponseEntity.ok(baristaService.getInFlight());
+    }
+
+    // 204 when the barista isn't making anything
+    @GetMapping("/{id}/current-order")
+    public ResponseEntity<Order> getCurrentOrder(@PathVariable Long id) {
+        Order order = baristaService.getCurrentOrder(id);
+        return order == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(order);
+    }
+
+    @GetMapping("/assignment-mode")
+    public ResponseEntity<AssignmentMode> getAssignmentMode() {
+        return ResponseEntity.ok(baristaService.getAssignmentMode());
+    }
+
+    // GREEDY, BALANCED or OPTIMAL; takes effect on the next dispatch tick
+    @PutMapping("/assignment-mode")
+    public ResponseEntity<AssignmentMode> setAssignmentMode(@RequestParam AssignmentMode mode) {
+        baristaService.setAssignmentMode(mode);
+        return ResponseEntity.ok(mode);
+    }
 }
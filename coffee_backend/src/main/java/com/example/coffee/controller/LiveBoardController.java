@@ -0,0 +1,30 @@
+package com.example.coffee.controller;
+
+import com.example.coffee.service.LiveBoardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/board")
+@RequiredArgsConstructor
+public class LiveBoardController {
+
+    private final LiveBoardService liveBoardService;
+
+    // Active orders + baristas, straight from memory
+    @GetMapping
+    public ResponseEntity<LiveBoardService.BoardSnapshot> getBoard() {
+        return ResponseEntity.ok(liveBoardService.snapshot());
+    }
+
+    // "snapshot" first, then "order" / "barista" events as they happen
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBoard() {
+        return liveBoardService.subscribe();
+    }
+}
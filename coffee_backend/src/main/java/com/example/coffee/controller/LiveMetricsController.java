@@ -0,0 +1,22 @@
+package com.example.coffee.controller;
+
+import com.example.coffee.service.LiveKpiService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/metrics")
+@RequiredArgsConstructor
+public class LiveMetricsController {
+
+    private final LiveKpiService liveKpiService;
+
+    // Wait/service percentiles, throughput and complaint rates over the last 5, 15 and 60 minutes, from memory
+    @GetMapping("/live")
+    public ResponseEntity<LiveKpiService.LiveKpis> getLiveKpis() {
+        return ResponseEntity.ok(liveKpiService.snapshot());
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.coffee.controller;
 
 import com.example.coffee.model.Order;
+import com.example.coffee.model.OrderStatus;
+import com.example.coffee.service.OrderIntakeService;
 import com.example.coffee.service.OrderService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -14,10 +18,43 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderController {
     private final OrderService orderService;
+    private final OrderIntakeService intakeService;
 
     @PostMapping
     public ResponseEntity<Order> createOrder(@RequestBody Order order) {
-        return ResponseEntity.ok(orderService.createOrder(order));
+        try {
+            return ResponseEntity.ok(orderService.createOrder(order));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // unknown station
+        }
+    }
+
+    // Rush-hour path: accepted now, created shortly after by the intake drainer; 429 when it can't keep up
+    @PostMapping("/intake")
+    public ResponseEntity<OrderIntakeService.IntakeAck> submitOrder(@RequestBody Order order) {
+        try {
+            return intakeService.submit(order)
+                    .map(ack -> ResponseEntity.accepted().body(ack))
+                    .orElse(ResponseEntity.status(429).build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // unknown station
+        }
+    }
+
+    @GetMapping("/intake/{ticket}")
+    public ResponseEntity<Order> getSubmittedOrder(@PathVariable String ticket) {
+        return intakeService.findByTicket(ticket)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> intakeService.hasFailed(ticket)
+                        ? ResponseEntity.unprocessableEntity().build() // accepted, but it couldn't be created
+                        : ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<Order> cancelOrder(@PathVariable Long id) {
+        return orderService.cancelOrder(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(409).build());
     }
 
     @GetMapping("/test")
@@ -25,6 +62,38 @@ public class OrderController {
         return ResponseEntity.ok("Backend is responding on /orders/test");
     }
 
+    // Paged browsing: /orders/query?status=COMPLETED,CANCELLED&from=...&to=...&baristaId=1&size=50&cursor=...
+    @GetMapping("/query")
+    public ResponseEntity<OrderService.OrderPage> queryOrders(
+            @RequestParam(required = false) List<OrderStatus> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long baristaId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(orderService.queryOrders(status, from, to, baristaId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Finished orders that have been archived, same parameters and paging as /orders/query
+    @GetMapping("/history")
+    public ResponseEntity<OrderService.OrderPage> queryHistory(
+            @RequestParam(required = false) List<OrderStatus> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long baristaId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(orderService.queryHistory(status, from, to, baristaId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping
     public ResponseEntity<List<Order>> getAllOrders() {
         return ResponseEntity.ok(orderService.getAllOrders());
@@ -0,0 +1,38 @@
+package com.example.coffee.controller;
+
+import com.example.coffee.dispatch.ScoringParameters;
+import com.example.coffee.service.BaristaService;
+import com.example.coffee.service.PriorityService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/scoring")
+@RequiredArgsConstructor
+public class ScoringController {
+
+    private final PriorityService priorityService;
+    private final BaristaService baristaService;
+
+    // The live priority weights and thresholds (also used by new simulation runs)
+    @GetMapping
+    public ResponseEntity<ScoringParameters> getScoring() {
+        return ResponseEntity.ok(priorityService.getStrategy().getParameters());
+    }
+
+    // Swaps the whole parameter set and rescores the queued orders; missing fields take their defaults
+    @PutMapping
+    public ResponseEntity<ScoringParameters> setScoring(@RequestBody ScoringParameters parameters) {
+        try {
+            baristaService.setScoring(parameters);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(priorityService.getStrategy().getParameters());
+    }
+}
@@ -1,13 +1,24 @@
 package com.example.coffee.controller;
 
+import com.example.coffee.dispatch.AssignmentMode;
+import com.example.coffee.service.SimulationJobService;
 import com.example.coffee.service.SimulationService;
+import com.example.coffee.service.StaffingService;
+import com.example.coffee.simulation.TraceArrivalSource;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/simulation")
@@ -15,9 +26,123 @@ import java.util.List;
 public class SimulationController {
 
     private final SimulationService simulationService;
+    private final SimulationJobService simulationJobService;
 
     @PostMapping("/run")
     public ResponseEntity<List<SimulationService.SimulationReport>> runSimulation() {
         return ResponseEntity.ok(simulationService.runSimulation());
     }
+
+    // Reproducible sweep: the same count, seed and mode always give the same summary.
+    // Runs on the simulation job pool; the request thread is released meanwhile
+    @PostMapping("/scenarios")
+    public CompletableFuture<ResponseEntity<SimulationService.SimulationSummary>> runScenarios(
+            @RequestParam(defaultValue = "1000") int count,
+            @RequestParam(defaultValue = "42") long seed,
+            @RequestParam(defaultValue = "BALANCED") AssignmentMode mode) {
+        if (count < 1 || count > SimulationService.MAX_SCENARIOS) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        try {
+            return simulationJobService.runScenarios(count, seed, mode).thenApply(ResponseEntity::ok);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(429).build()); // job queue full
+        }
+    }
+
+    // One run over the orders that really arrived in [from, to), read from the order journal;
+    // run on a simulation job thread, since a busy week is millions of orders
+    @PostMapping("/replay")
+    public CompletableFuture<ResponseEntity<SimulationService.SimulationReport>> replay(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "3") int baristas,
+            @RequestParam(defaultValue = "BALANCED") AssignmentMode mode) {
+        if (!from.isBefore(to) || baristas < 1 || baristas > SimulationService.MAX_BARISTAS) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        try {
+            return simulationJobService.replayJournal(from, to, baristas, mode).thenApply(ResponseEntity::ok);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(429).build()); // job queue full
+        }
+    }
+
+    // One run over an uploaded trace (CSV with a header row, or NDJSON), simulated while the body streams in;
+    // the body is read on a simulation job thread, not the request thread
+    @PostMapping(value = "/trace", consumes = {"text/csv", "application/x-ndjson", MediaType.TEXT_PLAIN_VALUE})
+    public CompletableFuture<ResponseEntity<SimulationService.SimulationReport>> runTrace(
+            HttpServletRequest request,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "3") int baristas,
+            @RequestParam(defaultValue = "BALANCED") AssignmentMode mode) throws IOException {
+        if ((from != null && to != null && !from.isBefore(to)) || baristas < 1 || baristas > SimulationService.MAX_BARISTAS) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        try {
+            return simulationJobService.runTrace(new TraceArrivalSource(request.getReader(), from, to), baristas, mode)
+                    .thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> {
+                        if (e.getCause() instanceof IllegalArgumentException) {
+                            return ResponseEntity.badRequest().build(); // a line of the trace couldn't be read
+                        }
+                        throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                    });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(429).build()); // job queue full
+        }
+    }
+
+    // Cheapest per-hour staffing for an hourly arrival profile that keeps the simulated days within the SLA;
+    // searched on the simulation job pool, the request thread is released meanwhile
+    @PostMapping("/staffing")
+    public CompletableFuture<ResponseEntity<StaffingService.StaffingPlan>> planStaffing(
+            @RequestBody StaffingService.StaffingRequest request) {
+        try {
+            return simulationJobService.planStaffing(request).thenApply(ResponseEntity::ok);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(429).build()); // job queue full
+        }
+    }
+
+    // Async sweep: returns a job id right away; follow it via /jobs/{id}/events
+    @PostMapping("/jobs")
+    public ResponseEntity<SimulationJobService.SimulationJob> submitJob(
+            @RequestParam(defaultValue = "1000") int count,
+            @RequestParam(defaultValue = "42") long seed,
+            @RequestParam(defaultValue = "BALANCED") AssignmentMode mode) {
+        if (count < 1 || count > SimulationService.MAX_SCENARIOS) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.accepted().body(simulationJobService.submit(count, seed, mode));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(429).build(); // job queue full, try again later
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<SimulationJobService.SimulationJob> getJob(@PathVariable String id) {
+        return simulationJobService.getJob(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Server-sent events: one "report" per finished case, then "status" and "summary"
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String id) {
+        return simulationJobService.getJob(id)
+                .map(job -> ResponseEntity.ok(simulationJobService.subscribe(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<Void> cancelJob(@PathVariable String id) {
+        return simulationJobService.cancel(id)
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.notFound().build();
+    }
 }
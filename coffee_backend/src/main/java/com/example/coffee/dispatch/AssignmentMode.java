@@ -0,0 +1,12 @@
+package com.example.coffee.dispatch;
+
+// How a dispatch tick matches idle baristas to waiting orders (see BatchAssigner)
+public enum AssignmentMode {
+    // Each idle barista, in list order, takes the best-scored waiting order
+    GREEDY,
+    // Like GREEDY, but an overloaded barista (> 1.2x average minutes) prefers quick orders (<= 2 min)
+    // and an underloaded one (< 0.8x) prefers long orders (>= 4 min)
+    BALANCED,
+    // Min-cost matching of all idle baristas against the top candidates at once
+    OPTIMAL
+}
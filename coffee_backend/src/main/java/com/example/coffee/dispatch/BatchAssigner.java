@@ -0,0 +1,239 @@
+package com.example.coffee.dispatch;
+
+import java.util.Arrays;
+
+/**
+ * Matches the idle baristas of one tick against a short list of candidate orders.
+ *
+ * OPTIMAL solves the whole idle-baristas x candidates matching as a min-cost assignment
+ * (Hungarian algorithm, O(n^2 m) for n baristas and m candidates). The cost of giving candidate c
+ * to barista b is
+ *
+ *     -score(c) + LOAD_WEIGHT * (load(b) / avgLoad - 1) * prep(c)
+ *
+ * so the matching takes the best-scored orders overall, and among them hands long drinks to
+ * baristas below the average workload and quick ones to baristas above it.
+ *
+ * Callers keep the candidate list short (top k by score), which bounds the work per tick. On top of
+ * that, a budget (if set) is checked after every barista the solver adds; when it runs out, the
+ * baristas not matched yet get the cheapest remaining candidate instead.
+ *
+ * Not thread-safe: scratch arrays are reused between calls, so steady-state calls don't allocate.
+ */
+public final class BatchAssigner {
+
+    public static final double LOAD_WEIGHT = 5.0; // score points per prep minute per 100% of load imbalance
+
+    private static final double INF = Double.MAX_VALUE / 4;
+
+    private final long budgetNanos;
+    private long budgetOverruns;
+
+    // Scratch, grown on demand
+    private double[] cost = new double[0]; // row-major, rows x cols
+    private double[] u = new double[0];
+    private double[] v = new double[0];
+    private double[] minv = new double[0];
+    private int[] p = new int[0];
+    private int[] way = new int[0];
+    private boolean[] usedCol = new boolean[0];
+    private boolean[] taken = new boolean[0];
+
+    /** @param budgetNanos time budget per OPTIMAL call, 0 for none (deterministic, used by the simulation) */
+    public BatchAssigner(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    /** How many OPTIMAL calls ran out of budget and finished greedily. */
+    public long getBudgetOverruns() {
+        return budgetOverruns;
+    }
+
+    /**
+     * @param loads      minutes assigned so far to each idle barista
+     * @param avgLoad    average minutes assigned over all baristas (busy ones included)
+     * @param scores     candidate priority scores
+     * @param preps      candidate prep times in minutes
+     * @param ties       candidate tie-breaks for equal scores, lower first
+     * @param result     out: result[b] = candidate index for barista b, or -1
+     * @return number of baristas that got an order
+     */
+    public int assign(AssignmentMode mode, int baristas, int[] loads, double avgLoad,
+                      int candidates, double[] scores, int[] preps, long[] ties, int[] result) {
+        Arrays.fill(result, 0, baristas, -1);
+        if (baristas == 0 || candidates == 0) return 0;
+        if (taken.length < candidates) taken = new boolean[candidates];
+        Arrays.fill(taken, 0, candidates, false);
+
+        switch (mode) {
+            case GREEDY:
+                return greedy(baristas, candidates, scores, ties, result);
+            case BALANCED:
+                return balanced(baristas, loads, avgLoad, candidates, scores, preps, ties, result);
+            default:
+                return optimal(baristas, loads, avgLoad, candidates, scores, preps, ties, result);
+        }
+    }
+
+    private int greedy(int baristas, int candidates, double[] scores, long[] ties, int[] result) {
+        int assigned = 0;
+        for (int b = 0; b < baristas; b++) {
+            int best = best(candidates, scores, null, ties, 0, Integer.MAX_VALUE);
+            if (best < 0) break;
+            take(b, best, result);
+            assigned++;
+        }
+        return assigned;
+    }
+
+    // Same rules as the simulation's workload balancing, over the candidate list
+    private int balanced(int baristas, int[] loads, double avgLoad, int candidates,
+                         double[] scores, int[] preps, long[] ties, int[] result) {
+        int assigned = 0;
+        for (int b = 0; b < baristas; b++) {
+            double ratio = avgLoad > 0 ? loads[b] / avgLoad : 1.0;
+            int best = -1;
+            if (ratio > 1.2) {
+                best = best(candidates, scores, preps, ties, 0, 2);         // overloaded: quick orders
+            } else if (ratio < 0.8) {
+                best = best(candidates, scores, preps, ties, 4, Integer.MAX_VALUE); // underloaded: complex orders
+            }
+            if (best < 0) best = best(candidates, scores, null, ties, 0, Integer.MAX_VALUE);
+            if (best < 0) break;
+            take(b, best, result);
+            assigned++;
+        }
+        return assigned;
+    }
+
+    private int optimal(int baristas, int[] loads, double avgLoad, int candidates,
+                        double[] scores, int[] preps, long[] ties, int[] result) {
+        long start = budgetNanos > 0 ? System.nanoTime() : 0;
+
+        // The Hungarian loop needs rows <= cols; with more idle baristas than orders, rows are the orders
+        boolean transposed = baristas > candidates;
+        int rows = transposed ? candidates : baristas;
+        int cols = transposed ? baristas : candidates;
+        ensureCapacity(rows, cols);
+        for (int b = 0; b < baristas; b++) {
+            double imbalance = avgLoad > 0 ? loads[b] / avgLoad - 1.0 : 0.0;
+            for (int c = 0; c < candidates; c++) {
+                double cellCost = -scores[c] + LOAD_WEIGHT * imbalance * preps[c];
+                if (transposed) cost[c * cols + b] = cellCost;
+                else cost[b * cols + c] = cellCost;
+            }
+        }
+
+        // Hungarian algorithm, 1-based: p[j] = row matched to column j, 0 = none
+        Arrays.fill(u, 0, rows + 1, 0);
+        Arrays.fill(v, 0, cols + 1, 0);
+        Arrays.fill(p, 0, cols + 1, 0);
+        int solvedRows = 0;
+        for (int i = 1; i <= rows; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, 0, cols + 1, INF);
+            Arrays.fill(usedCol, 0, cols + 1, false);
+            do {
+                usedCol[j0] = true;
+                int i0 = p[j0];
+                double delta = INF;
+                int j1 = 0;
+                for (int j = 1; j <= cols; j++) {
+                    if (usedCol[j]) continue;
+                    double cur = cost[(i0 - 1) * cols + (j - 1)] - u[i0] - v[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= cols; j++) {
+                    if (usedCol[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+            solvedRows = i;
+
+            if (budgetNanos > 0 && i < rows && System.nanoTime() - start > budgetNanos) {
+                budgetOverruns++;
+                break;
+            }
+        }
+
+        int assigned = 0;
+        for (int j = 1; j <= cols; j++) {
+            int i = p[j];
+            if (i == 0 || i > solvedRows) continue;
+            int b = transposed ? j - 1 : i - 1;
+            int c = transposed ? i - 1 : j - 1;
+            take(b, c, result);
+            assigned++;
+        }
+
+        // Out of budget: whoever is still unmatched takes the cheapest candidate left
+        if (solvedRows < rows) {
+            for (int b = 0; b < baristas; b++) {
+                if (result[b] >= 0) continue;
+                double imbalance = avgLoad > 0 ? loads[b] / avgLoad - 1.0 : 0.0;
+                int best = -1;
+                double bestCost = INF;
+                for (int c = 0; c < candidates; c++) {
+                    if (taken[c]) continue;
+                    double cellCost = -scores[c] + LOAD_WEIGHT * imbalance * preps[c];
+                    if (best < 0 || cellCost < bestCost || (cellCost == bestCost && ties[c] < ties[best])) {
+                        best = c;
+                        bestCost = cellCost;
+                    }
+                }
+                if (best < 0) break;
+                take(b, best, result);
+                assigned++;
+            }
+        }
+        return assigned;
+    }
+
+    // Best untaken candidate whose prep time is within [minPrep, maxPrep] (no filter when preps is null), or -1
+    private int best(int candidates, double[] scores, int[] preps, long[] ties, int minPrep, int maxPrep) {
+        int best = -1;
+        for (int c = 0; c < candidates; c++) {
+            if (taken[c]) continue;
+            if (preps != null && (preps[c] < minPrep || preps[c] > maxPrep)) continue;
+            if (best < 0 || scores[c] > scores[best] || (scores[c] == scores[best] && ties[c] < ties[best])) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private void take(int barista, int candidate, int[] result) {
+        result[barista] = candidate;
+        taken[candidate] = true;
+    }
+
+    private void ensureCapacity(int rows, int cols) {
+        if (cost.length < rows * cols) cost = new double[rows * cols];
+        if (u.length < rows + 1) u = new double[rows + 1];
+        if (v.length < cols + 1) {
+            v = new double[cols + 1];
+            minv = new double[cols + 1];
+            p = new int[cols + 1];
+            way = new int[cols + 1];
+            usedCol = new boolean[cols + 1];
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.coffee.dispatch;
+
+import com.example.coffee.model.Order;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Fires order completions when drinks are due (startTime + prepTimeMinutes) instead of polling.
+ *
+ * Orders in progress sit in a DelayQueue; a single thread sleeps until the earliest one is due,
+ * drains everything that is due at that moment and hands it to the handler as one batch.
+ * Nothing touches the DB while no drink is due.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CompletionScheduler {
+
+    private final Clock clock;
+    private final DelayQueue<DueOrder> inProgress = new DelayQueue<>();
+    private Thread worker;
+
+    /** Starts the completion thread. The handler receives every batch of orders that became due together. */
+    public synchronized void start(Consumer<List<Order>> handler) {
+        if (worker != null) return;
+        worker = new Thread(() -> run(handler), "order-completion");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Schedules completion of an order that just moved to PROCESSING. */
+    public void track(Order order) {
+        LocalDateTime due = order.getStartTime().plusMinutes(order.getPrepTimeMinutes());
+        inProgress.add(new DueOrder(order, due.atZone(clock.getZone()).toInstant().toEpochMilli()));
+    }
+
+    public int size() {
+        return inProgress.size();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    private void run(Consumer<List<Order>> handler) {
+        List<DueOrder> due = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                due.add(inProgress.take());
+                inProgress.drainTo(due); // drainTo only takes entries whose delay has expired
+                List<Order> batch = new ArrayList<>(due.size());
+                for (DueOrder entry : due) {
+                    batch.add(entry.order);
+                }
+                handler.accept(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                // Put the batch back so the drinks still get completed on the next wake-up
+                log.error("Completing {} orders failed, retrying", due.size(), e);
+                inProgress.addAll(due);
+                sleepQuietly();
+            } finally {
+                due.clear();
+            }
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class DueOrder implements Delayed {
+        private final Order order;
+        private final long dueMillis;
+
+        private DueOrder(Order order, long dueMillis) {
+            this.order = order;
+            this.dueMillis = dueMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueMillis - clock.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueMillis, ((DueOrder) other).dueMillis);
+        }
+    }
+}
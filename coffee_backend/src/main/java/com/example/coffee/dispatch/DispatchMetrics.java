@@ -0,0 +1,151 @@
+package com.example.coffee.dispatch;
+
+import com.example.coffee.model.Barista;
+import com.example.coffee.model.Order;
+import com.example.coffee.service.PriorityService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Meters for the dispatch pipeline, exposed on /actuator/prometheus:
+ *
+ *   coffee.dispatch.tick              timer, one station tick (tag station)
+ *   coffee.dispatch.rescored          orders rescored per tick (tag station)
+ *   coffee.orders.pending             queue depth (tag station)
+ *   coffee.orders.processing          drinks being made, all stations
+ *   coffee.orders.timeout.risk        pending orders waiting longer than the urgency threshold (tag station, sampled)
+ *   coffee.order.assignment.latency   arrival -> start
+ *   coffee.order.completion.lag       how late a drink was marked done after startTime + prepTimeMinutes
+ *   coffee.barista.minutes.assigned   per barista (tags barista, station)
+ *   coffee.barista.load               minutes assigned / station average, 1.0 = even (tags barista, station)
+ *
+ * Station and barista meters are registered the first time their station ticks.
+ */
+@Component
+public class DispatchMetrics {
+
+    private final MeterRegistry registry;
+    private final Clock clock;
+    private final Timer assignmentLatency;
+    private final Timer completionLag;
+    private final Map<Long, StationMeters> stations = new ConcurrentHashMap<>();
+    private final Set<Long> baristas = ConcurrentHashMap.newKeySet();
+
+    private static final class StationMeters {
+        final StationShard station;
+        final Timer tick;
+        final DistributionSummary rescored;
+        final AtomicInteger timeoutRisk = new AtomicInteger();
+
+        StationMeters(StationShard station, Timer tick, DistributionSummary rescored) {
+            this.station = station;
+            this.tick = tick;
+            this.rescored = rescored;
+        }
+    }
+
+    public DispatchMetrics(MeterRegistry registry, Clock clock, CompletionScheduler completionScheduler) {
+        this.registry = registry;
+        this.clock = clock;
+        this.assignmentLatency = Timer.builder("coffee.order.assignment.latency")
+                .description("Time from arrival to a barista starting the order")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofMinutes(30))
+                .register(registry);
+        this.completionLag = Timer.builder("coffee.order.completion.lag")
+                .description("Delay between a drink being due and being marked completed")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("coffee.orders.processing", completionScheduler, CompletionScheduler::size)
+                .description("Orders being prepared")
+                .register(registry);
+    }
+
+    /** After every tick of a station, with how long it took and how many orders it rescored. */
+    public void stationTicked(StationShard station, long tookNanos, int rescored) {
+        StationMeters meters = stations.computeIfAbsent(station.getStationId(), id -> register(station));
+        meters.tick.record(tookNanos, TimeUnit.NANOSECONDS);
+        meters.rescored.record(rescored);
+        for (Barista barista : station.getBaristas()) {
+            if (baristas.add(barista.getId())) register(station, barista);
+        }
+    }
+
+    // Counting means scanning the queue under its lock, so it's sampled here instead of on every tick
+    @Scheduled(fixedDelayString = "${coffee.metrics.timeout-risk-interval-ms:15000}")
+    public void sampleTimeoutRisk() {
+        LocalDateTime urgentBefore = LocalDateTime.now(clock).minusMinutes(PriorityService.URGENCY_THRESHOLD);
+        for (StationMeters meters : stations.values()) {
+            meters.timeoutRisk.set(meters.station.getQueue().countArrivedBefore(urgentBefore));
+        }
+    }
+
+    public void orderAssigned(Order order) {
+        if (order.getArrivalTime() == null || order.getStartTime() == null) return;
+        assignmentLatency.record(Duration.between(order.getArrivalTime(), order.getStartTime()));
+    }
+
+    public void orderCompleted(Order order, LocalDateTime completedAt) {
+        if (order.getStartTime() == null) return;
+        LocalDateTime due = order.getStartTime().plusMinutes(order.getPrepTimeMinutes());
+        Duration lag = Duration.between(due, completedAt);
+        completionLag.record(lag.isNegative() ? Duration.ZERO : lag);
+    }
+
+    private StationMeters register(StationShard station) {
+        String id = String.valueOf(station.getStationId());
+        Gauge.builder("coffee.orders.pending", station.getQueue(), PendingOrderQueue::size)
+                .description("Orders waiting for a barista")
+                .tag("station", id)
+                .register(registry);
+        StationMeters meters = new StationMeters(station,
+                Timer.builder("coffee.dispatch.tick")
+                        .description("Duration of one dispatch tick")
+                        .tag("station", id)
+                        .publishPercentileHistogram()
+                        .register(registry),
+                DistributionSummary.builder("coffee.dispatch.rescored")
+                        .description("Orders rescored in one dispatch tick")
+                        .tag("station", id)
+                        .register(registry));
+        Gauge.builder("coffee.orders.timeout.risk", meters.timeoutRisk, AtomicInteger::get)
+                .description("Pending orders waiting longer than " + PriorityService.URGENCY_THRESHOLD + " minutes")
+                .tag("station", id)
+                .register(registry);
+        return meters;
+    }
+
+    private void register(StationShard station, Barista barista) {
+        String stationId = String.valueOf(station.getStationId());
+        String baristaId = String.valueOf(barista.getId());
+        Gauge.builder("coffee.barista.minutes.assigned", barista, Barista::getTotalMinutesAssigned)
+                .tag("barista", baristaId)
+                .tag("station", stationId)
+                .register(registry);
+        Gauge.builder("coffee.barista.load", barista, b -> load(b, station.getBaristas()))
+                .description("Minutes assigned relative to the station average (1.0 = even)")
+                .tag("barista", baristaId)
+                .tag("station", stationId)
+                .register(registry);
+    }
+
+    private static double load(Barista barista, List<Barista> colleagues) {
+        long total = 0;
+        for (Barista b : colleagues) total += b.getTotalMinutesAssigned();
+        return total == 0 ? 1.0 : barista.getTotalMinutesAssigned() * (double) colleagues.size() / total;
+    }
+}
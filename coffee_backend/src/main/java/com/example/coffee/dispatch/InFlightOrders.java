@@ -0,0 +1,77 @@
+package com.example.coffee.dispatch;
+
+import com.example.coffee.model.Barista;
+import com.example.coffee.model.Order;
+import lombok.Data;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which barista is making which order right now, and when it is due, indexed both ways.
+ *
+ * Entries are added by the station thread on assignment and removed by the completion thread,
+ * so "is this barista free", "who is making order X" and "what is barista Y making" are map
+ * lookups instead of queries over PROCESSING orders. The persistent side of the same relation is
+ * Order.baristaId and Barista.currentOrderId; on startup the table is rebuilt from the
+ * PROCESSING orders (see BaristaService.recover).
+ */
+@Component
+public class InFlightOrders {
+
+    @Data
+    public static class Assignment {
+        private final Barista barista;
+        private final Order order;
+        private final LocalDateTime due;
+    }
+
+    private final Map<Long, Assignment> byBarista = new ConcurrentHashMap<>();
+    private final Map<Long, Assignment> byOrder = new ConcurrentHashMap<>();
+
+    /** The barista started the order (its startTime is set). */
+    public Assignment start(Barista barista, Order order) {
+        Assignment assignment = new Assignment(barista, order, order.getStartTime().plusMinutes(order.getPrepTimeMinutes()));
+        byOrder.put(order.getId(), assignment);
+        byBarista.put(barista.getId(), assignment);
+        return assignment;
+    }
+
+    /** Removes the order; returns its assignment, or null if it wasn't in flight. */
+    public Assignment finish(Long orderId) {
+        Assignment assignment = byOrder.remove(orderId);
+        if (assignment != null) {
+            // Only if the barista hasn't moved on to another order already
+            byBarista.remove(assignment.getBarista().getId(), assignment);
+        }
+        return assignment;
+    }
+
+    public Assignment forOrder(Long orderId) {
+        return byOrder.get(orderId);
+    }
+
+    public Assignment forBarista(Long baristaId) {
+        return byBarista.get(baristaId);
+    }
+
+    public boolean isMaking(Long baristaId) {
+        return byBarista.containsKey(baristaId);
+    }
+
+    /** Everything in flight, soonest due first. */
+    public List<Assignment> all() {
+        List<Assignment> all = new ArrayList<>(byOrder.values());
+        all.sort(Comparator.comparing(Assignment::getDue));
+        return all;
+    }
+
+    public int size() {
+        return byOrder.size();
+    }
+}
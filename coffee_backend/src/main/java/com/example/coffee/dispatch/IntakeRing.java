@@ -0,0 +1,81 @@
+package com.example.coffee.dispatch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free ring for many producers and one consumer (request threads -> intake drainer).
+ *
+ * Each slot has a sequence number telling whose turn it is: a producer claims the next position
+ * with one CAS on the tail, writes its element and then publishes the slot by bumping its sequence;
+ * the consumer only takes slots that have been published, in order, and hands them back to
+ * producers one lap later. A full ring makes offer() fail instead of blocking, so callers can
+ * push back on the client.
+ */
+public final class IntakeRing<E> {
+
+    private final int mask;
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head; // written only by the consumer
+
+    /** @param capacity rounded up to a power of two */
+    public IntakeRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** Any thread. Returns false when the ring is full. */
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) (position & mask);
+            long lag = sequences.get(slot) - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[slot] = element;
+                    sequences.set(slot, position + 1); // publishes the element to the consumer
+                    return true;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                return false; // the consumer hasn't freed this slot yet: a full lap behind
+            } else {
+                position = tail.get(); // another producer took this position
+            }
+        }
+    }
+
+    /** Consumer thread only. Hands up to max published elements to the sink, oldest first; returns how many. */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super E> sink, int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) (position & mask);
+            if (sequences.get(slot) != position + 1) break; // not published yet
+            E element = (E) slots[slot];
+            slots[slot] = null;
+            sequences.set(slot, position + mask + 1); // free for the producer one lap ahead
+            head = ++position; // before the sink runs, so a throwing sink can't leave a freed slot behind head
+            drained++;
+            sink.accept(element);
+        }
+        return drained;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.coffee.dispatch;
+
+import com.example.coffee.model.Order;
+
+import java.time.LocalDateTime;
+
+/**
+ * Scoring contract used by the pending queue.
+ *
+ * Scores are step functions of the wait time, so besides the current score the scorer
+ * reports when the score will next change. The queue only rescores an order at that instant.
+ */
+public interface OrderScorer {
+
+    double calculatePriority(Order order);
+
+    /** Next instant at which {@link #calculatePriority} would return a different value, or null if it never will. */
+    LocalDateTime nextScoreChange(Order order);
+}
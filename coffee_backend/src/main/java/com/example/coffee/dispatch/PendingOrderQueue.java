@@ -0,0 +1,236 @@
+package com.example.coffee.dispatch;
+
+import com.example.coffee.model.Order;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Resident queue of PENDING orders, ordered by priority score. There is one per station (see StationShard).
+ *
+ * This is the dispatch source of truth while the app runs: orders are added on create,
+ * removed on assign/cancel, and re-keyed in place when their score changes.
+ * MySQL only gets written when an order actually changes state.
+ *
+ * Scores are step functions of wait time, so alongside the priority heap there is a calendar
+ * (min-heap on the next score-change instant). A tick only rescores the orders whose
+ * calendar entry is due, instead of the whole queue.
+ */
+public class PendingOrderQueue {
+
+    private final ScoreHeap heap = new ScoreHeap(64);
+    private final ScoreHeap calendar = new ScoreHeap(64); // keyed by -epochMillis, so the top is the earliest
+    private final Map<Long, Integer> handlesById = new HashMap<>();
+    private Order[] orders = new Order[64];
+    private int[] freeHandles = new int[64];
+    private int freeCount = 0;
+    private int nextHandle = 0;
+
+    public synchronized boolean add(Order order) {
+        if (order.getId() == null || handlesById.containsKey(order.getId())) return false;
+        int handle = allocateHandle();
+        orders[handle] = order;
+        handlesById.put(order.getId(), handle);
+        heap.insert(handle, order.getPriorityScore(), order.getId()); // equal scores: oldest id first
+        return true;
+    }
+
+    /** Scores the order with the given scorer and schedules its next rescore. */
+    public synchronized boolean add(Order order, OrderScorer scorer) {
+        order.setPriorityScore(scorer.calculatePriority(order));
+        return add(order, scorer.nextScoreChange(order));
+    }
+
+    /**
+     * Adds an order its creator has just scored, keeping that score; {@code nextScoreChange} is when that
+     * score goes stale (null if never). An instant already past is rescored on the next tick.
+     */
+    public synchronized boolean add(Order order, LocalDateTime nextScoreChange) {
+        if (!add(order)) return false;
+        schedule(handlesById.get(order.getId()), nextScoreChange);
+        return true;
+    }
+
+    /**
+     * Rescores only the orders whose score-change instant has passed and reschedules them.
+     * Returns how many orders were rescored.
+     */
+    public synchronized int rescoreDue(LocalDateTime now, OrderScorer scorer) {
+        return rescoreDue(now, scorer, order -> { });
+    }
+
+    /** Same as {@link #rescoreDue(LocalDateTime, OrderScorer)}, calling onChanged for every order whose score moved. */
+    public synchronized int rescoreDue(LocalDateTime now, OrderScorer scorer, Consumer<Order> onChanged) {
+        double nowKey = -toMillis(now);
+        int rescored = 0;
+        while (!calendar.isEmpty() && calendar.scoreOf(calendar.peek()) >= nowKey) {
+            int handle = calendar.poll();
+            Order order = orders[handle];
+            double score = scorer.calculatePriority(order);
+            if (score != order.getPriorityScore()) {
+                order.setPriorityScore(score);
+                heap.update(handle, score);
+                onChanged.accept(order);
+            }
+            schedule(handle, scorer.nextScoreChange(order));
+            rescored++;
+        }
+        return rescored;
+    }
+
+    /** Removes the order with this id (cancel / external assignment). Returns it, or null if not queued. */
+    public synchronized Order remove(Long orderId) {
+        Integer handle = handlesById.remove(orderId);
+        if (handle == null) return null;
+        heap.remove(handle);
+        calendar.remove(handle);
+        return releaseHandle(handle);
+    }
+
+    /** Removes and returns the highest-priority order, or null when empty. */
+    public synchronized Order poll() {
+        int handle = heap.poll();
+        if (handle < 0) return null;
+        Order order = orders[handle];
+        handlesById.remove(order.getId());
+        calendar.remove(handle);
+        return releaseHandle(handle);
+    }
+
+    public synchronized Order peek() {
+        int handle = heap.peek();
+        return handle < 0 ? null : orders[handle];
+    }
+
+    /** The k best orders, best first, left in the queue. */
+    public synchronized List<Order> top(int k) {
+        int[] handles = new int[Math.max(0, Math.min(k, heap.size()))];
+        int n = heap.topHandles(handles.length, handles);
+        List<Order> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(orders[handles[i]]);
+        }
+        return result;
+    }
+
+    /** Re-keys a queued order after its score changed. */
+    public synchronized boolean updateScore(Long orderId, double score) {
+        Integer handle = handlesById.get(orderId);
+        if (handle == null) return false;
+        orders[handle].setPriorityScore(score);
+        heap.update(handle, score);
+        return true;
+    }
+
+    /** Recomputes every queued score with the given function and re-keys the heap. */
+    public synchronized void rescoreAll(ToDoubleFunction<Order> scorer) {
+        for (int handle = 0; handle < nextHandle; handle++) {
+            Order order = orders[handle];
+            if (order == null) continue;
+            double score = scorer.applyAsDouble(order);
+            order.setPriorityScore(score);
+            heap.update(handle, score);
+        }
+    }
+
+    /**
+     * Rescores every queued order with the given scorer and reschedules it, for when the scoring
+     * itself changed. Calls onChanged for every order whose score moved; returns how many did.
+     */
+    public synchronized int rescoreAll(OrderScorer scorer, Consumer<Order> onChanged) {
+        int changed = 0;
+        for (int handle = 0; handle < nextHandle; handle++) {
+            Order order = orders[handle];
+            if (order == null) continue;
+            double score = scorer.calculatePriority(order);
+            if (score != order.getPriorityScore()) {
+                order.setPriorityScore(score);
+                heap.update(handle, score);
+                onChanged.accept(order);
+                changed++;
+            }
+            schedule(handle, scorer.nextScoreChange(order));
+        }
+        return changed;
+    }
+
+    /** How many queued orders arrived before the given time (a full scan; for metrics, not the dispatch path). */
+    public synchronized int countArrivedBefore(LocalDateTime time) {
+        int count = 0;
+        for (int handle = 0; handle < nextHandle; handle++) {
+            Order order = orders[handle];
+            if (order != null && order.getArrivalTime() != null && order.getArrivalTime().isBefore(time)) count++;
+        }
+        return count;
+    }
+
+    public synchronized boolean contains(Long orderId) {
+        return handlesById.containsKey(orderId);
+    }
+
+    public synchronized int size() {
+        return heap.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    /** Copy of the queued orders, highest priority first. */
+    public synchronized List<Order> snapshot() {
+        List<Order> copy = new ArrayList<>(heap.size());
+        for (int slot = 0; slot < heap.size(); slot++) {
+            copy.add(orders[heap.handleAt(slot)]);
+        }
+        copy.sort(Comparator.comparingDouble(Order::getPriorityScore).reversed()
+                .thenComparing(Order::getId));
+        return copy;
+    }
+
+    public synchronized void clear() {
+        heap.clear();
+        calendar.clear();
+        handlesById.clear();
+        Arrays.fill(orders, null);
+        freeCount = 0;
+        nextHandle = 0;
+    }
+
+    private void schedule(int handle, LocalDateTime rescoreAt) {
+        calendar.remove(handle);
+        if (rescoreAt != null) {
+            calendar.insert(handle, -toMillis(rescoreAt), handle);
+        }
+    }
+
+    // Ordering key only; the zone is irrelevant as long as it's applied consistently
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private int allocateHandle() {
+        if (freeCount > 0) return freeHandles[--freeCount];
+        if (nextHandle == orders.length) {
+            orders = Arrays.copyOf(orders, orders.length * 2);
+        }
+        return nextHandle++;
+    }
+
+    private Order releaseHandle(int handle) {
+        Order order = orders[handle];
+        orders[handle] = null;
+        if (freeCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeHandles.length * 2);
+        }
+        freeHandles[freeCount++] = handle;
+        return order;
+    }
+}
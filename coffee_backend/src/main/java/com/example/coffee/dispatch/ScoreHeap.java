@@ -0,0 +1,192 @@
+package com.example.coffee.dispatch;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary max-heap over small int handles.
+ *
+ * Each handle carries a score and a tie-break value (lower tie-break wins when scores are equal),
+ * so callers can re-key or remove an entry in O(log n) without scanning the heap.
+ * Not thread-safe; owners are expected to guard it.
+ */
+public final class ScoreHeap {
+
+    private int[] heap;       // heap slot -> handle
+    private int[] position;   // handle -> heap slot, -1 when absent
+    private double[] scores;  // handle -> score
+    private long[] tieBreaks; // handle -> tie-break
+    private int size;
+    private int[] frontier = new int[0]; // scratch for topHandles
+
+    public ScoreHeap(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        heap = new int[capacity];
+        position = new int[capacity];
+        scores = new double[capacity];
+        tieBreaks = new long[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int handle) {
+        return handle >= 0 && handle < position.length && position[handle] >= 0;
+    }
+
+    public double scoreOf(int handle) {
+        return scores[handle];
+    }
+
+    /** Returns the handle stored at the given heap slot (0 = top), for unordered iteration. */
+    public int handleAt(int slot) {
+        return heap[slot];
+    }
+
+    public void insert(int handle, double score, long tieBreak) {
+        ensureHandleCapacity(handle);
+        if (position[handle] >= 0) {
+            throw new IllegalStateException("Handle already queued: " + handle);
+        }
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        scores[handle] = score;
+        tieBreaks[handle] = tieBreak;
+        heap[size] = handle;
+        position[handle] = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    /** Changes the score of a queued handle and restores heap order (works for increase and decrease). */
+    public void update(int handle, double score) {
+        int slot = position[handle];
+        if (slot < 0) {
+            throw new IllegalStateException("Handle not queued: " + handle);
+        }
+        double old = scores[handle];
+        if (old == score) return;
+        scores[handle] = score;
+        if (score > old) {
+            siftUp(slot);
+        } else {
+            siftDown(slot);
+        }
+    }
+
+    public boolean remove(int handle) {
+        if (!contains(handle)) return false;
+        int slot = position[handle];
+        int last = heap[--size];
+        position[handle] = -1;
+        if (slot != size) {
+            heap[slot] = last;
+            position[last] = slot;
+            siftDown(slot);
+            siftUp(position[last]);
+        }
+        return true;
+    }
+
+    /** Returns the best handle without removing it, or -1 when empty. */
+    public int peek() {
+        return size == 0 ? -1 : heap[0];
+    }
+
+    /** Removes and returns the best handle, or -1 when empty. */
+    public int poll() {
+        if (size == 0) return -1;
+        int top = heap[0];
+        remove(top);
+        return top;
+    }
+
+    /**
+     * Writes the k best handles, best first, into out (which must hold k) without changing the heap.
+     * Walks the heap best-first from the root, so it costs O(k^2) and doesn't touch the other entries.
+     * Returns how many handles were written (less than k if the heap is smaller).
+     */
+    public int topHandles(int k, int[] out) {
+        int n = Math.min(k, size);
+        if (n == 0) return 0;
+        if (frontier.length < n + 1) frontier = new int[n + 1];
+        int open = 0;
+        frontier[open++] = 0; // heap slots whose parents have been emitted
+        for (int written = 0; written < n; written++) {
+            int best = 0;
+            for (int f = 1; f < open; f++) {
+                if (better(heap[frontier[f]], heap[frontier[best]])) best = f;
+            }
+            int slot = frontier[best];
+            frontier[best] = frontier[--open];
+            out[written] = heap[slot];
+            if (2 * slot + 1 < size) frontier[open++] = 2 * slot + 1;
+            if (2 * slot + 2 < size) frontier[open++] = 2 * slot + 2;
+        }
+        return n;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private boolean better(int a, int b) {
+        double sa = scores[a];
+        double sb = scores[b];
+        if (sa != sb) return sa > sb;
+        return tieBreaks[a] < tieBreaks[b];
+    }
+
+    private void siftUp(int slot) {
+        int handle = heap[slot];
+        while (slot > 0) {
+            int parentSlot = (slot - 1) >>> 1;
+            int parent = heap[parentSlot];
+            if (!better(handle, parent)) break;
+            heap[slot] = parent;
+            position[parent] = slot;
+            slot = parentSlot;
+        }
+        heap[slot] = handle;
+        position[handle] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int handle = heap[slot];
+        int half = size >>> 1;
+        while (slot < half) {
+            int childSlot = 2 * slot + 1;
+            int child = heap[childSlot];
+            int rightSlot = childSlot + 1;
+            if (rightSlot < size && better(heap[rightSlot], child)) {
+                childSlot = rightSlot;
+                child = heap[childSlot];
+            }
+            if (!better(child, handle)) break;
+            heap[slot] = child;
+            position[child] = slot;
+            slot = childSlot;
+        }
+        heap[slot] = handle;
+        position[handle] = slot;
+    }
+
+    private void ensureHandleCapacity(int handle) {
+        if (handle < position.length) return;
+        int capacity = Math.max(position.length * 2, handle + 1);
+        int old = position.length;
+        position = Arrays.copyOf(position, capacity);
+        Arrays.fill(position, old, capacity, -1);
+        scores = Arrays.copyOf(scores, capacity);
+        tieBreaks = Arrays.copyOf(tieBreaks, capacity);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.coffee.dispatch;
+
+import lombok.Data;
+
+/**
+ * Weights and thresholds of the priority score, as sent to / returned by PUT /scoring.
+ * The defaults are the production formula. Compile with {@link ScoringStrategy#compile}.
+ *
+ *   wait        min(wait / waitCapMinutes, 1) * 100
+ *   complexity  max(0, (complexityMaxPrepMinutes - prep) / complexityMaxPrepMinutes) * 100
+ *   loyalty     100 for loyalty members
+ *   urgency     100 from urgencyThresholdMinutes, before that urgencyRampPerMinute per minute past urgencyRampStartMinutes
+ *   score       the weighted sum, plus emergencyBoost once the wait is over emergencyAfterMinutes
+ *
+ * Wait times are whole minutes.
+ */
+@Data
+public class ScoringParameters {
+
+    private double waitWeight = 0.40;
+    private double complexityWeight = 0.25;
+    private double loyaltyWeight = 0.10;
+    private double urgencyWeight = 0.25;
+
+    private int waitCapMinutes = 10;
+    private int complexityMaxPrepMinutes = 10;
+    private int urgencyRampStartMinutes = 5;
+    private double urgencyRampPerMinute = 20;
+    private int urgencyThresholdMinutes = 8;
+    private int emergencyAfterMinutes = 8;
+    private double emergencyBoost = 50;
+
+    public ScoringParameters copy() {
+        ScoringParameters copy = new ScoringParameters();
+        copy.setWaitWeight(waitWeight);
+        copy.setComplexityWeight(complexityWeight);
+        copy.setLoyaltyWeight(loyaltyWeight);
+        copy.setUrgencyWeight(urgencyWeight);
+        copy.setWaitCapMinutes(waitCapMinutes);
+        copy.setComplexityMaxPrepMinutes(complexityMaxPrepMinutes);
+        copy.setUrgencyRampStartMinutes(urgencyRampStartMinutes);
+        copy.setUrgencyRampPerMinute(urgencyRampPerMinute);
+        copy.setUrgencyThresholdMinutes(urgencyThresholdMinutes);
+        copy.setEmergencyAfterMinutes(emergencyAfterMinutes);
+        copy.setEmergencyBoost(emergencyBoost);
+        return copy;
+    }
+}
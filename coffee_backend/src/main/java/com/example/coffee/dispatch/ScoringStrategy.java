@@ -0,0 +1,117 @@
+package com.example.coffee.dispatch;
+
+/**
+ * A compiled, immutable {@link ScoringParameters}: the one priority formula shared by live dispatch
+ * (PriorityService) and the simulation.
+ *
+ * Every term depends on whole wait minutes, prep minutes or the loyalty flag alone, and the wait
+ * terms stop changing at {@link #getSaturationMinutes()}. Compiling folds the wait, urgency and
+ * emergency terms into one table indexed by wait minute and the complexity term into one indexed by
+ * prep minutes, so a score is two clamped lookups and an add, with no threshold branches. Scoring a
+ * batch is the same loop over parallel arrays.
+ *
+ * Instances never change; swapping the live formula means compiling a new one.
+ */
+public final class ScoringStrategy {
+
+    public static final ScoringStrategy DEFAULT = compile(new ScoringParameters());
+
+    // Keeps a bad PUT from allocating huge tables
+    private static final int MAX_TABLE_MINUTES = 24 * 60;
+
+    private final ScoringParameters parameters;
+    private final double[] waitTerms; // by wait minute, 0..saturation
+    private final double[] prepTerms; // by prep minutes, 0..complexityMaxPrepMinutes
+    private final double loyaltyTerm;
+    private final int saturationMinutes;
+
+    private ScoringStrategy(ScoringParameters parameters) {
+        this.parameters = parameters;
+        this.saturationMinutes = Math.max(parameters.getWaitCapMinutes(),
+                Math.max(parameters.getUrgencyThresholdMinutes(), parameters.getEmergencyAfterMinutes() + 1));
+
+        this.waitTerms = new double[saturationMinutes + 1];
+        for (int minute = 0; minute <= saturationMinutes; minute++) {
+            double waitScore = Math.min((double) minute / parameters.getWaitCapMinutes() * 100, 100);
+            double urgencyScore = 0;
+            if (minute >= parameters.getUrgencyThresholdMinutes()) {
+                urgencyScore = 100;
+            } else if (minute > parameters.getUrgencyRampStartMinutes()) {
+                urgencyScore = Math.min((minute - parameters.getUrgencyRampStartMinutes()) * parameters.getUrgencyRampPerMinute(), 100);
+            }
+            double term = waitScore * parameters.getWaitWeight() + urgencyScore * parameters.getUrgencyWeight();
+            if (minute > parameters.getEmergencyAfterMinutes()) term += parameters.getEmergencyBoost();
+            waitTerms[minute] = term;
+        }
+
+        int maxPrep = parameters.getComplexityMaxPrepMinutes();
+        this.prepTerms = new double[maxPrep + 1];
+        for (int prep = 0; prep <= maxPrep; prep++) {
+            double complexityScore = Math.max(0, (double) (maxPrep - prep) / maxPrep * 100);
+            prepTerms[prep] = complexityScore * parameters.getComplexityWeight();
+        }
+        this.loyaltyTerm = 100 * parameters.getLoyaltyWeight();
+    }
+
+    /** Validates and compiles. Throws IllegalArgumentException describing the first bad value. */
+    public static ScoringStrategy compile(ScoringParameters parameters) {
+        ScoringParameters p = parameters.copy();
+        requireWeight("waitWeight", p.getWaitWeight());
+        requireWeight("complexityWeight", p.getComplexityWeight());
+        requireWeight("loyaltyWeight", p.getLoyaltyWeight());
+        requireWeight("urgencyWeight", p.getUrgencyWeight());
+        requireWeight("urgencyRampPerMinute", p.getUrgencyRampPerMinute());
+        requireWeight("emergencyBoost", p.getEmergencyBoost());
+        requireMinutes("waitCapMinutes", p.getWaitCapMinutes(), 1);
+        requireMinutes("complexityMaxPrepMinutes", p.getComplexityMaxPrepMinutes(), 1);
+        requireMinutes("urgencyThresholdMinutes", p.getUrgencyThresholdMinutes(), 0);
+        requireMinutes("urgencyRampStartMinutes", p.getUrgencyRampStartMinutes(), 0);
+        requireMinutes("emergencyAfterMinutes", p.getEmergencyAfterMinutes(), 0);
+        if (p.getEmergencyAfterMinutes() >= MAX_TABLE_MINUTES) {
+            throw new IllegalArgumentException("emergencyAfterMinutes must be below " + MAX_TABLE_MINUTES);
+        }
+        return new ScoringStrategy(p);
+    }
+
+    private static void requireWeight(String name, double value) {
+        if (!Double.isFinite(value) || value < 0) {
+            throw new IllegalArgumentException(name + " must be a finite, non-negative number");
+        }
+    }
+
+    private static void requireMinutes(String name, int value, int min) {
+        if (value < min || value > MAX_TABLE_MINUTES) {
+            throw new IllegalArgumentException(name + " must be between " + min + " and " + MAX_TABLE_MINUTES);
+        }
+    }
+
+    public double score(long waitMinutes, int prepMinutes, boolean loyal) {
+        return waitTerms[(int) Math.min(Math.max(waitMinutes, 0), saturationMinutes)]
+                + prepTerms[Math.min(Math.max(prepMinutes, 0), prepTerms.length - 1)]
+                + (loyal ? loyaltyTerm : 0);
+    }
+
+    /** Scores the first count orders given as parallel arrays into scores. */
+    public void scoreAll(int count, int[] waitMinutes, int[] prepMinutes, boolean[] loyal, double[] scores) {
+        double[] waits = waitTerms;
+        double[] preps = prepTerms;
+        int maxWait = saturationMinutes;
+        int maxPrep = preps.length - 1;
+        double loyalty = loyaltyTerm;
+        for (int i = 0; i < count; i++) {
+            scores[i] = waits[Math.min(Math.max(waitMinutes[i], 0), maxWait)]
+                    + preps[Math.min(Math.max(prepMinutes[i], 0), maxPrep)]
+                    + (loyal[i] ? loyalty : 0);
+        }
+    }
+
+    /** From this many whole minutes of waiting on, the score no longer changes. */
+    public int getSaturationMinutes() {
+        return saturationMinutes;
+    }
+
+    /** A copy of the parameters this was compiled from. */
+    public ScoringParameters getParameters() {
+        return parameters.copy();
+    }
+}
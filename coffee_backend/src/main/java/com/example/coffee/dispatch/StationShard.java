@@ -0,0 +1,62 @@
+package com.example.coffee.dispatch;
+
+import com.example.coffee.model.Barista;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch state of one station (store or counter): its waiting orders, its baristas, and the
+ * thread that runs its dispatch ticks. Nothing here is shared with other stations, so a rush at
+ * one store only costs that store's thread.
+ */
+public final class StationShard {
+
+    private final long stationId;
+    private final PendingOrderQueue queue = new PendingOrderQueue();
+    private final List<Barista> baristas = new CopyOnWriteArrayList<>();
+    private final BatchAssigner batchAssigner;
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> ticks;
+
+    StationShard(long stationId, long assignmentBudgetNanos) {
+        this.stationId = stationId;
+        this.batchAssigner = new BatchAssigner(assignmentBudgetNanos);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dispatch-station-" + stationId);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public long getStationId() {
+        return stationId;
+    }
+
+    public PendingOrderQueue getQueue() {
+        return queue;
+    }
+
+    /** Resident baristas of this station; their state is written behind, so MySQL may lag. */
+    public List<Barista> getBaristas() {
+        return baristas;
+    }
+
+    /** Only to be used from the station's dispatch thread. */
+    public BatchAssigner getBatchAssigner() {
+        return batchAssigner;
+    }
+
+    synchronized void start(Runnable tick, long periodMillis) {
+        if (ticks != null) return;
+        ticks = executor.scheduleAtFixedRate(tick, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        executor.shutdownNow();
+    }
+}
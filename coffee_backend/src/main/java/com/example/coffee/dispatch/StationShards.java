@@ -0,0 +1,87 @@
+package com.example.coffee.dispatch;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * All stations known to this backend. A station is created when a barista is hired there or when
+ * startup recovery finds one; requests only look stations up, so a client can't conjure one.
+ *
+ * Once {@link #start} has been called, every shard (including ones created later, when the first
+ * barista of a new station is hired) runs the tick on its own thread every period.
+ */
+@Slf4j
+@Component
+public class StationShards {
+
+    public static final long DEFAULT_STATION = 1L;
+
+    private final ConcurrentMap<Long, StationShard> shards = new ConcurrentHashMap<>();
+    private final long tickMillis;
+    private final long assignmentBudgetNanos;
+    private volatile Consumer<StationShard> tick;
+
+    public StationShards(@Value("${coffee.dispatch.tick-ms:5000}") long tickMillis,
+                         @Value("${coffee.dispatch.assignment-budget-ms:20}") long assignmentBudgetMs) {
+        this.tickMillis = tickMillis;
+        this.assignmentBudgetNanos = assignmentBudgetMs * 1_000_000L;
+    }
+
+    /** Orders and baristas without a station belong to the default one. */
+    public static long stationOf(Long stationId) {
+        return stationId == null ? DEFAULT_STATION : stationId;
+    }
+
+    // Creates the station on first use: for hiring and startup recovery only, everything else uses get
+    public StationShard forStation(Long stationId) {
+        return shards.computeIfAbsent(stationOf(stationId), id -> {
+            StationShard shard = new StationShard(id, assignmentBudgetNanos);
+            Consumer<StationShard> current = tick;
+            if (current != null) startShard(shard, current);
+            return shard;
+        });
+    }
+
+    public Optional<StationShard> get(Long stationId) {
+        return Optional.ofNullable(shards.get(stationOf(stationId)));
+    }
+
+    public Collection<StationShard> all() {
+        return shards.values();
+    }
+
+    /** Starts the dispatch loop of every current and future station. */
+    public synchronized void start(Consumer<StationShard> tick) {
+        this.tick = tick;
+        for (StationShard shard : shards.values()) {
+            startShard(shard, tick);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        List<StationShard> stopping = new ArrayList<>(shards.values());
+        stopping.forEach(StationShard::stop);
+    }
+
+    private void startShard(StationShard shard, Consumer<StationShard> tick) {
+        shard.start(() -> {
+            try {
+                tick.accept(shard);
+            } catch (RuntimeException e) {
+                // A failed tick must not cancel the schedule; the next one retries
+                log.error("Dispatch tick failed for station {}", shard.getStationId(), e);
+            }
+        }, tickMillis);
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import java.time.Clock;
 import java.time.LocalDateTime;
 
 @Entity
@@ -27,7 +28,14 @@ public class Barista {
     // We can calculate this dynamically, but storing total prep time assigned helps
     private int totalMinutesAssigned; 
 
-    public boolean isBusy() {
-        return busyUntil != null && busyUntil.isAfter(LocalDateTime.now());
+    private Long stationId; // Which store / counter they work at (null = the default station)
+
+    private Long currentOrderId; // The order they are making, null when free
+
+    @Version
+    private long version;
+
+    public boolean isBusy(Clock clock) {
+        return busyUntil != null && busyUntil.isAfter(LocalDateTime.now(clock));
     }
 }
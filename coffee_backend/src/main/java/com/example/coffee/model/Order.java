@@ -7,7 +7,16 @@ import lombok.AllArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name="orders")
+@Table(name="orders", indexes = {
+        // Dispatch / board lookups by status, best first
+        @Index(name = "idx_orders_status_score", columnList = "status, priority_score"),
+        // Keyset paging on (arrival_time, id), with and without a status or barista filter
+        @Index(name = "idx_orders_status_arrival", columnList = "status, arrival_time, id"),
+        @Index(name = "idx_orders_arrival", columnList = "arrival_time, id"),
+        @Index(name = "idx_orders_barista_arrival", columnList = "barista_id, arrival_time, id"),
+        // Startup recovery loads each station's active orders
+        @Index(name = "idx_orders_station_status", columnList = "station_id, status")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -28,6 +37,19 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status; // PENDING, PROCESSING, COMPLETED, CANCELLED
 
+    @Column(name = "barista_id")
+    private Long baristaId; // Who made it, set on assignment
+
+    // Read-only side of baristaId (which is what gets written), so the column carries a real foreign key
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "barista_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(name = "fk_orders_barista"))
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    @lombok.ToString.Exclude
+    @lombok.EqualsAndHashCode.Exclude
+    private Barista barista;
+    private Long stationId; // Store / counter it was placed at (null = the default station)
+
     @ManyToOne
     @JoinColumn(name = "customer_id")
     private Customer customer;
@@ -35,22 +57,30 @@ public class Order {
     // Delegate to Customer entity, helpful for frontend JSON serialization if needed, 
     // or just return false if no customer linked.
     // Using JsonProperty to maintain compatibility with frontend expected field.
-    @com.fasterxml.jackson.annotation.JsonProperty("isLoyaltyMember")
-    public boolean isLoyaltyMember() {
-        return customer != null && customer.isLoyaltyMember();
-    }
-
-    public void setLoyaltyMember(boolean loyaltyMember) {
-        if (customer == null) {
-            customer = new Customer();
-        }
-        customer.setLoyaltyMember(loyaltyMember);
-    }
+    @com.fasterxml.jackson.annotation.JsonProperty("isLoyaltyMember")
+    public boolean isLoyaltyMember() {
+        return customer != null && customer.isLoyaltyMember();
+    }
+
+    public void setLoyaltyMember(boolean loyaltyMember) {
+        if (customer == null) {
+            customer = new Customer();
+        }
+        customer.setLoyaltyMember(loyaltyMember);
+    }
     
     // Priority Algorithm Params
     private double priorityScore;
     private int timesSkipped; // To track fairness
 
+    // Bumped on every state write; a write against a stale version is rejected (see WriteBehindBuffer)
+    @Version
+    private long version;
+
+    // Set for orders accepted through the intake ring, so the POS can match the ack to the created order
+    @Transient
+    private String intakeTicket;
+
     // Helper to calculate wait time in minutes
     public long getWaitTimeMinutes(java.time.Clock clock) {
          if (arrivalTime == null) return 0;
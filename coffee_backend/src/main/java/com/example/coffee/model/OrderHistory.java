@@ -0,0 +1,42 @@
+package com.example.coffee.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Append-only copy of a finished (COMPLETED / CANCELLED) order, moved out of the hot orders table by OrderArchiveService
+@Entity
+@Table(name = "order_history", indexes = {
+        @Index(name = "idx_history_arrival", columnList = "arrival_time, id"),
+        @Index(name = "idx_history_status_arrival", columnList = "status, arrival_time, id"),
+        @Index(name = "idx_history_barista_arrival", columnList = "barista_id, arrival_time, id")
+})
+@Data
+@NoArgsConstructor
+public class OrderHistory {
+    @Id
+    private Long id; // same id the order had while it was live
+
+    private String customerName;
+    private String drinkType;
+    private int prepTimeMinutes;
+    private double price;
+
+    private LocalDateTime arrivalTime;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private double priorityScore;
+    private int timesSkipped;
+    private Long baristaId;
+    private Long stationId;
+
+    // Denormalized: history rows don't join back to customers
+    private Long customerId;
+    private boolean loyaltyMember;
+}
@@ -0,0 +1,44 @@
+package com.example.coffee.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Flat, read-only view of an order for list screens: no Customer entity, just the flag the UI shows
+@Data
+@NoArgsConstructor
+public class OrderSummary {
+    private Long id;
+    private String customerName;
+    private String drinkType;
+    private int prepTimeMinutes;
+    private double price;
+    private OrderStatus status;
+    private LocalDateTime arrivalTime;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private double priorityScore;
+    private Long baristaId;
+
+    @com.fasterxml.jackson.annotation.JsonProperty("isLoyaltyMember")
+    private boolean loyaltyMember;
+
+    // Used by the JPA constructor projection; loyalty is null when the order has no customer
+    public OrderSummary(Long id, String customerName, String drinkType, int prepTimeMinutes, double price,
+                        OrderStatus status, LocalDateTime arrivalTime, LocalDateTime startTime,
+                        LocalDateTime endTime, double priorityScore, Long baristaId, Boolean loyaltyMember) {
+        this.id = id;
+        this.customerName = customerName;
+        this.drinkType = drinkType;
+        this.prepTimeMinutes = prepTimeMinutes;
+        this.price = price;
+        this.status = status;
+        this.arrivalTime = arrivalTime;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.priorityScore = priorityScore;
+        this.baristaId = baristaId;
+        this.loyaltyMember = Boolean.TRUE.equals(loyaltyMember);
+    }
+}
@@ -0,0 +1,477 @@
+package com.example.coffee.repo;
+
+import com.example.coffee.model.Barista;
+import com.example.coffee.model.Customer;
+import com.example.coffee.model.Order;
+import com.example.coffee.model.OrderStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local, binary checkpoint of the dispatch state (active orders and baristas) for warm restarts:
+ * a snapshot file plus an append-only change log of everything that happened since.
+ *
+ * Every state change that goes through the write-behind buffer, every created order and every hired
+ * barista is appended as one record carrying the entity's full state, so replaying the log over the
+ * snapshot gives the latest state per id (completed / cancelled orders drop out). Each record has a
+ * sequence number; after every successful write-behind flush a FLUSHED marker records up to which
+ * sequence the DB is known to be current. A snapshot is only written right after such a flush, so
+ * everything in it is already in the DB; on boot, changes logged after the last marker are
+ * re-marked dirty, closing the write-behind durability gap of a crash.
+ *
+ * Records are [length][payload][crc32]; reading stops at the first torn or corrupt record. A new
+ * log file is started on every boot and every snapshot, and older ones are deleted once a snapshot
+ * covers them. Without a valid snapshot the logs are discarded and the app starts cold.
+ *
+ * The log must have seen every change since the snapshot for the warm state to be right, so a
+ * failed append disables checkpointing and deletes the snapshot: the next boot is a cold one.
+ */
+@Slf4j
+@Component
+public class CheckpointLog {
+
+    private static final int SNAPSHOT_MAGIC = 0x43504b31; // "CPK1"
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final String LOG_PREFIX = "changes-";
+    private static final String LOG_SUFFIX = ".log";
+
+    private static final byte ORDER = 1;
+    private static final byte BARISTA = 2;
+    private static final byte FLUSHED = 3;
+
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    /** What the last run left behind. The unflushed lists hold the same instances as the active ones. */
+    @Data
+    public static class WarmState {
+        private final long through;
+        private final List<Barista> baristas;
+        private final List<Order> orders;            // PENDING and PROCESSING
+        private final List<Order> unflushedOrders;   // including ones that finished meanwhile
+        private final List<Barista> unflushedBaristas;
+        private final int replayedRecords;
+    }
+
+    private final boolean enabled;
+    private final Path dir;
+    private FileChannel channel;
+    private long sequence;
+    private long lastFlushed;
+    private volatile boolean broken;
+    private WarmState warmState;
+
+    public CheckpointLog(@Value("${coffee.checkpoint.dir:data/checkpoint}") String dir,
+                         @Value("${coffee.checkpoint.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+    }
+
+    /** A log that records nothing and never has a warm state. */
+    public static CheckpointLog disabled() {
+        return new CheckpointLog("", false);
+    }
+
+    /** Reads the snapshot and logs of the last run, then starts a fresh log file. */
+    @PostConstruct
+    public synchronized void open() {
+        if (!enabled || channel != null) return;
+        try {
+            Files.createDirectories(dir);
+            warmState = read();
+            for (Path file : logFiles()) {
+                // Without a snapshot there is nothing to replay onto; a file starting past the last
+                // readable record holds nothing usable, and the new log would reuse its name
+                if (warmState == null || firstSequence(file) > sequence) Files.delete(file);
+            }
+            channel = openLog(sequence + 1);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Checkpoint directory {} unusable, checkpointing disabled", dir.toAbsolutePath(), e);
+            broken = true;
+        }
+    }
+
+    /** The warm state found by open(), handed out once. Empty when the app has to start cold. */
+    public synchronized Optional<WarmState> takeWarmState() {
+        WarmState state = warmState;
+        warmState = null;
+        return Optional.ofNullable(state);
+    }
+
+    public boolean isEnabled() {
+        return enabled && !broken;
+    }
+
+    /** Sequence of the last appended record. */
+    public synchronized long sequence() {
+        return sequence;
+    }
+
+    /** Highest sequence the DB is known to be current with. */
+    public synchronized long lastFlushed() {
+        return lastFlushed;
+    }
+
+    /** @param durable true when the change is already in the DB (an INSERT), false for write-behind changes */
+    public synchronized void orderChanged(Order order, boolean durable) {
+        if (!isEnabled() || channel == null) return;
+        append(ORDER, durable, out -> writeOrder(out, order));
+    }
+
+    public synchronized void baristaChanged(Barista barista, boolean durable) {
+        if (!isEnabled() || channel == null) return;
+        append(BARISTA, durable, out -> writeBarista(out, barista));
+    }
+
+    /**
+     * A new order: {@code insert} puts it in its station's queue, then it's logged as durable, both
+     * under the lock {@link #rotate} takes. A checkpoint therefore either finds the order in the queues
+     * or replays this record, and any change dispatch makes to it is logged after this record.
+     */
+    public synchronized void orderCreated(Order order, Runnable insert) {
+        insert.run();
+        orderChanged(order, true);
+    }
+
+    /** A new barista, added to their station by {@code insert}; same guarantee as {@link #orderCreated}. */
+    public synchronized void baristaHired(Barista barista, Runnable insert) {
+        insert.run();
+        baristaChanged(barista, true);
+    }
+
+    /** Everything appended up to {@code through} has been written to the DB. */
+    public synchronized void flushed(long through) {
+        if (through <= lastFlushed) return;
+        lastFlushed = through;
+        if (!isEnabled() || channel == null) return;
+        append(FLUSHED, true, out -> out.writeLong(through));
+    }
+
+    /** Starts a new log file; returns the sequence the next snapshot will cover. */
+    public synchronized long rotate() {
+        if (!isEnabled() || channel == null) return sequence;
+        try {
+            channel.force(false);
+            channel.close();
+            channel = openLog(sequence + 1);
+        } catch (IOException e) {
+            fail(e);
+        }
+        return sequence;
+    }
+
+    /**
+     * Writes a snapshot covering the log up to {@code through} (everything up to there must be flushed)
+     * and deletes the log files it makes redundant. The orders and baristas may be changing while this
+     * runs; any change after {@code through} is in the log and wins on replay.
+     */
+    public void writeSnapshot(long through, Collection<Barista> baristas, Collection<Order> orders) {
+        if (!isEnabled()) return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(through);
+            out.writeInt(baristas.size());
+            for (Barista barista : baristas) writeBarista(out, barista);
+            out.writeInt(orders.size());
+            for (Order order : orders) writeOrder(out, order);
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeLong(crc.getValue());
+
+            Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+            try (FileChannel file = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                file.write(ByteBuffer.wrap(bytes.toByteArray()));
+                file.force(true);
+            }
+            Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            synchronized (this) {
+                for (Path file : logFiles()) {
+                    if (firstSequence(file) <= through) Files.delete(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Writing the dispatch checkpoint failed; keeping the previous one", e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (channel == null) return;
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Closing the checkpoint log failed", e);
+        }
+        channel = null;
+    }
+
+    // --- appending
+
+    private interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, boolean durable, Payload payload) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(160);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeLong(sequence + 1);
+            out.writeBoolean(durable);
+            payload.write(out);
+            byte[] body = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+
+            ByteBuffer record = ByteBuffer.allocate(body.length + 8);
+            record.putInt(body.length).put(body).putInt((int) crc.getValue()).flip();
+            while (record.hasRemaining()) channel.write(record);
+            sequence++;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        log.error("Checkpoint log write failed; checkpointing disabled until restart, next start will be cold", e);
+        broken = true;
+        try {
+            Files.deleteIfExists(dir.resolve(SNAPSHOT));
+        } catch (IOException ignored) {
+            // the snapshot can't be trusted either way; the log gap makes replay stop short
+        }
+    }
+
+    private FileChannel openLog(long firstSequence) throws IOException {
+        Path file = dir.resolve(String.format("%s%020d%s", LOG_PREFIX, firstSequence, LOG_SUFFIX));
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> logFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> {
+                String name = f.getFileName().toString();
+                return name.startsWith(LOG_PREFIX) && name.endsWith(LOG_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private static long firstSequence(Path logFile) {
+        String name = logFile.getFileName().toString();
+        return Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+    }
+
+    // --- recovery
+
+    // Latest state per id, and the record that produced it
+    private static final class Entry<T> {
+        T entity;
+        long seq;
+        boolean durable;
+    }
+
+    private WarmState read() throws IOException {
+        Path snapshotFile = dir.resolve(SNAPSHOT);
+        if (!Files.exists(snapshotFile)) return null;
+
+        Map<Long, Entry<Barista>> baristas = new LinkedHashMap<>();
+        Map<Long, Entry<Order>> orders = new LinkedHashMap<>();
+        byte[] snapshot = Files.readAllBytes(snapshotFile);
+        if (snapshot.length < 12) return null;
+        CRC32 crc = new CRC32();
+        crc.update(snapshot, 0, snapshot.length - 8);
+        if (ByteBuffer.wrap(snapshot, snapshot.length - 8, 8).getLong() != crc.getValue()) {
+            log.warn("Checkpoint snapshot is corrupt, starting cold");
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new java.io.ByteArrayInputStream(snapshot));
+        if (in.readInt() != SNAPSHOT_MAGIC) return null;
+        long through = in.readLong();
+        for (int i = in.readInt(); i > 0; i--) put(baristas, readBarista(in), through, true);
+        for (int i = in.readInt(); i > 0; i--) put(orders, readOrder(in), through, true);
+        sequence = through;
+        lastFlushed = through;
+
+        int replayed = 0;
+        for (Path file : logFiles()) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt();
+                if (length <= 0 || buffer.remaining() < length + 4) break; // torn tail
+                byte[] body = new byte[length];
+                buffer.get(body);
+                CRC32 recordCrc = new CRC32();
+                recordCrc.update(body);
+                if (buffer.getInt() != (int) recordCrc.getValue()) break;
+
+                DataInputStream record = new DataInputStream(new java.io.ByteArrayInputStream(body));
+                byte type = record.readByte();
+                long seq = record.readLong();
+                boolean durable = record.readBoolean();
+                sequence = Math.max(sequence, seq);
+                if (seq <= through) continue; // already in the snapshot
+                replayed++;
+                if (type == ORDER) put(orders, readOrder(record), seq, durable);
+                else if (type == BARISTA) put(baristas, readBarista(record), seq, durable);
+                else if (type == FLUSHED) lastFlushed = Math.max(lastFlushed, record.readLong());
+            }
+        }
+
+        List<Barista> activeBaristas = new ArrayList<>();
+        List<Barista> unflushedBaristas = new ArrayList<>();
+        for (Entry<Barista> entry : baristas.values()) {
+            activeBaristas.add(entry.entity);
+            if (!entry.durable && entry.seq > lastFlushed) unflushedBaristas.add(entry.entity);
+        }
+        List<Order> activeOrders = new ArrayList<>();
+        List<Order> unflushedOrders = new ArrayList<>();
+        for (Entry<Order> entry : orders.values()) {
+            OrderStatus status = entry.entity.getStatus();
+            if (status == OrderStatus.PENDING || status == OrderStatus.PROCESSING) activeOrders.add(entry.entity);
+            if (!entry.durable && entry.seq > lastFlushed) unflushedOrders.add(entry.entity);
+        }
+        return new WarmState(through, activeBaristas, activeOrders, unflushedOrders, unflushedBaristas, replayed);
+    }
+
+    private static <T> void put(Map<Long, Entry<T>> entries, T entity, long seq, boolean durable) {
+        Long id = entity instanceof Order order ? order.getId() : ((Barista) entity).getId();
+        Entry<T> entry = entries.computeIfAbsent(id, k -> new Entry<>());
+        entry.entity = entity;
+        entry.seq = seq;
+        entry.durable = durable;
+    }
+
+    // --- record layouts
+
+    private static void writeOrder(DataOutputStream out, Order order) throws IOException {
+        out.writeLong(order.getId());
+        out.writeByte(order.getStatus() == null ? -1 : order.getStatus().ordinal());
+        writeString(out, order.getCustomerName());
+        writeString(out, order.getDrinkType());
+        out.writeInt(order.getPrepTimeMinutes());
+        out.writeDouble(order.getPrice());
+        writeTime(out, order.getArrivalTime());
+        writeTime(out, order.getStartTime());
+        writeTime(out, order.getEndTime());
+        writeId(out, order.getBaristaId());
+        writeId(out, order.getStationId());
+        writeId(out, order.getCustomer() == null ? null : order.getCustomer().getId());
+        out.writeBoolean(order.isLoyaltyMember());
+        out.writeDouble(order.getPriorityScore());
+        out.writeInt(order.getTimesSkipped());
+        out.writeLong(order.getVersion());
+    }
+
+    private static Order readOrder(DataInputStream in) throws IOException {
+        Order order = new Order();
+        order.setId(in.readLong());
+        byte status = in.readByte();
+        order.setStatus(status < 0 ? null : STATUSES[status]);
+        order.setCustomerName(readString(in));
+        order.setDrinkType(readString(in));
+        order.setPrepTimeMinutes(in.readInt());
+        order.setPrice(in.readDouble());
+        order.setArrivalTime(readTime(in));
+        order.setStartTime(readTime(in));
+        order.setEndTime(readTime(in));
+        order.setBaristaId(readId(in));
+        order.setStationId(readId(in));
+        Long customerId = readId(in);
+        boolean loyal = in.readBoolean();
+        if (customerId != null) {
+            // Enough for scoring and to keep the customer_id reference; the rest stays in the DB
+            Customer customer = new Customer();
+            customer.setId(customerId);
+            customer.setLoyaltyMember(loyal);
+            order.setCustomer(customer);
+        }
+        order.setPriorityScore(in.readDouble());
+        order.setTimesSkipped(in.readInt());
+        order.setVersion(in.readLong());
+        return order;
+    }
+
+    private static void writeBarista(DataOutputStream out, Barista barista) throws IOException {
+        out.writeLong(barista.getId());
+        writeString(out, barista.getName());
+        writeTime(out, barista.getBusyUntil());
+        out.writeInt(barista.getTotalOrdersCompleted());
+        out.writeInt(barista.getTotalMinutesAssigned());
+        writeId(out, barista.getStationId());
+        writeId(out, barista.getCurrentOrderId());
+        out.writeLong(barista.getVersion());
+    }
+
+    private static Barista readBarista(DataInputStream in) throws IOException {
+        Barista barista = new Barista();
+        barista.setId(in.readLong());
+        barista.setName(readString(in));
+        barista.setBusyUntil(readTime(in));
+        barista.setTotalOrdersCompleted(in.readInt());
+        barista.setTotalMinutesAssigned(in.readInt());
+        barista.setStationId(readId(in));
+        barista.setCurrentOrderId(readId(in));
+        barista.setVersion(in.readLong());
+        return barista;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeId(DataOutputStream out, Long id) throws IOException {
+        out.writeLong(id == null ? Long.MIN_VALUE : id);
+    }
+
+    private static Long readId(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        return id == Long.MIN_VALUE ? null : id;
+    }
+
+    // Epoch second + nano in UTC; only a consistent encoding matters, LocalDateTime has no zone
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time == null ? Long.MIN_VALUE : time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time == null ? 0 : time.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        return seconds == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
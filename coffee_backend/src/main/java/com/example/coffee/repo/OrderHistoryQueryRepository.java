@@ -0,0 +1,12 @@
+package com.example.coffee.repo;
+
+import com.example.coffee.model.OrderSummary;
+
+import java.util.List;
+
+// Custom fragment of OrderHistoryRepository: the same keyset-paged summaries as OrderQueryRepository, over the archive
+public interface OrderHistoryQueryRepository {
+
+    /** Newest first, ordered by (arrivalTime desc, id desc). */
+    List<OrderSummary> findHistorySummaries(OrderQueryRepository.OrderQuery query);
+}
@@ -0,0 +1,20 @@
+package com.example.coffee.repo;
+
+import com.example.coffee.model.OrderHistory;
+import com.example.coffee.model.OrderSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.List;
+
+public class OrderHistoryQueryRepositoryImpl implements OrderHistoryQueryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderSummary> findHistorySummaries(OrderQueryRepository.OrderQuery query) {
+        return OrderSummaryQueries.findSummaries(entityManager, OrderHistory.class, query,
+                history -> history.get("loyaltyMember"));
+    }
+}
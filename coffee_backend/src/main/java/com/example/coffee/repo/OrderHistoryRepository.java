@@ -0,0 +1,9 @@
+package com.example.coffee.repo;
+
+import com.example.coffee.model.OrderHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OrderHistoryRepository extends JpaRepository<OrderHistory, Long>, OrderHistoryQueryRepository {
+}
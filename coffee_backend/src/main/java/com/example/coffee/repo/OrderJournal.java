@@ -0,0 +1,349 @@
+package com.example.coffee.repo;
+
+import com.example.coffee.model.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of order lifecycle events (created, started, completed, cancelled) on local disk.
+ *
+ * Each event is one fixed 48-byte big-endian record, so anything that can read bytes can read the files:
+ *
+ * <pre>
+ *  0  long   order id
+ *  8  long   event time, epoch millis of the shop's wall-clock time (the LocalDateTime read as UTC)
+ * 16  long   arrival time, same encoding (on every event, so waits need no join)
+ * 24  long   barista id, 0 if none
+ * 32  int    station id, 0 if none
+ * 36  short  prep minutes
+ * 38  byte   event type: 1 created, 2 started, 3 completed, 4 cancelled
+ * 39  byte   flags: bit 0 = loyalty member
+ * 40  byte   drink: index into DRINKS, 0 = other
+ * 41  3 bytes reserved, 0
+ * 44  int    CRC32 of bytes 0-43
+ * </pre>
+ *
+ * Records go into segment files of a fixed number of events, named after the index of their first event
+ * (orders-00000000000000000000.journal) and written through a memory mapping, so an append is a few
+ * stores into the page cache and survives a process crash. A scheduled group commit forces everything
+ * appended since the last one to disk in one call; a full segment is forced and the next one started.
+ * The unused tail of a segment is zeros, which never passes the CRC, so readers stop at the first bad record.
+ *
+ * Unlike the {@link CheckpointLog} nothing is ever deleted or read back by the app itself: this is the
+ * audit trail and the arrival history that SimulationService.replayJournal streams into the simulator.
+ */
+@Slf4j
+@Component
+public class OrderJournal {
+
+    public static final int RECORD_BYTES = 48;
+    private static final int CRC_OFFSET = 44;
+    private static final String PREFIX = "orders-";
+    private static final String SUFFIX = ".journal";
+    private static final String[] DRINKS = {"", "Espresso", "Americano", "Latte", "Cappuccino", "Cold Brew", "Specialty"};
+
+    public enum EventType { CREATED, STARTED, COMPLETED, CANCELLED }
+
+    private static final EventType[] TYPES = EventType.values();
+
+    @Data
+    public static class Event {
+        private long orderId;
+        private EventType type;
+        private LocalDateTime time;
+        private LocalDateTime arrivalTime;
+        private Long baristaId;
+        private Long stationId;
+        private int prepMinutes;
+        private boolean loyaltyMember;
+        private String drinkType; // null when it isn't one of DRINKS
+    }
+
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentEvents;
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer segment;
+    private long segmentFirst;     // index of the segment's first event
+    private int capacity;          // events the segment holds
+    private int position;          // events written to it
+    private int committedPosition; // events forced to disk
+    private volatile boolean broken;
+
+    public OrderJournal(@Value("${coffee.journal.dir:data/journal}") String dir,
+                        @Value("${coffee.journal.enabled:true}") boolean enabled,
+                        @Value("${coffee.journal.segment-events:262144}") int segmentEvents) {
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+        this.segmentEvents = segmentEvents;
+    }
+
+    /** A journal that records nothing. */
+    public static OrderJournal disabled() {
+        return new OrderJournal("", false, 1);
+    }
+
+    /** Continues the last segment after its last valid record, or starts the first one. */
+    @PostConstruct
+    public synchronized void open() {
+        if (!enabled || segment != null) return;
+        try {
+            Files.createDirectories(dir);
+            List<Path> segments = segmentFiles(dir);
+            map(segments.isEmpty() ? 0 : firstIndex(segments.get(segments.size() - 1)));
+            while (position < capacity && decode(segment, position * RECORD_BYTES, new CRC32()) != null) {
+                position++;
+            }
+            committedPosition = position;
+            if (position == capacity) roll();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Order journal {} unusable, journaling disabled", dir.toAbsolutePath(), e);
+            broken = true;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled && !broken;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    /** Index the next event will get; also the number of events journaled so far. */
+    public synchronized long size() {
+        return segmentFirst + position;
+    }
+
+    /** Appends one event for the order's current state. Never throws: the journal must not hold up orders. */
+    public void record(EventType type, Order order) {
+        if (!isEnabled()) return;
+        synchronized (this) {
+            if (segment == null) return;
+            try {
+                if (position == capacity) roll();
+                encode(type, order);
+                segment.put(position * RECORD_BYTES, scratch.array(), 0, RECORD_BYTES);
+                position++;
+            } catch (IOException | UncheckedIOException e) {
+                log.error("Order journal write failed; journaling disabled until restart", e);
+                broken = true;
+            }
+        }
+    }
+
+    /** Group commit: forces everything appended since the last call to disk with one msync. */
+    @Scheduled(fixedDelayString = "${coffee.journal.commit-ms:20}")
+    public void commit() {
+        MappedByteBuffer pending;
+        int from;
+        int to;
+        synchronized (this) {
+            if (segment == null || committedPosition == position) return;
+            pending = segment;
+            from = committedPosition;
+            to = position;
+            committedPosition = position;
+        }
+        // Outside the lock, so appends carry on while the disk catches up
+        try {
+            pending.force(from * RECORD_BYTES, (to - from) * RECORD_BYTES);
+        } catch (UncheckedIOException e) {
+            log.warn("Order journal commit failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        commit();
+        synchronized (this) {
+            segment = null;
+        }
+    }
+
+    /** A reader over this journal's directory, from the oldest event. */
+    public Reader reader() throws IOException {
+        return new Reader(dir);
+    }
+
+    /**
+     * Reads every event in {@code dir}, oldest first, and returns how many there were. Needs nothing but
+     * the files, so it also works offline and while the app is appending (a half-written record ends its
+     * segment).
+     */
+    public static long read(Path dir, Consumer<Event> sink) throws IOException {
+        Reader reader = new Reader(dir);
+        long count = 0;
+        for (Event event = reader.next(); event != null; event = reader.next()) {
+            sink.accept(event);
+            count++;
+        }
+        return count;
+    }
+
+    /** Pulls events one at a time, with one segment mapped at a time, for streaming consumers. */
+    public static final class Reader {
+        private final List<Path> segments;
+        private final CRC32 crc = new CRC32();
+        private int nextSegment;
+        private MappedByteBuffer buffer;
+        private int at;
+
+        private Reader(Path dir) throws IOException {
+            this.segments = Files.isDirectory(dir) ? segmentFiles(dir) : List.of();
+        }
+
+        /** The next event, or null after the last one. */
+        public Event next() throws IOException {
+            while (true) {
+                if (buffer != null && at + RECORD_BYTES <= buffer.capacity()) {
+                    Event event = decode(buffer, at, crc);
+                    if (event != null) {
+                        at += RECORD_BYTES;
+                        return event;
+                    }
+                }
+                if (nextSegment == segments.size()) return null;
+                try (FileChannel channel = FileChannel.open(segments.get(nextSegment++), StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                at = 0;
+            }
+        }
+    }
+
+    /**
+     * Offline export of a journal directory as CSV on stdout, e.g. from the packaged jar:
+     * java -cp coffee.jar -Dloader.main=com.example.coffee.repo.OrderJournal
+     *      org.springframework.boot.loader.launch.PropertiesLauncher data/journal > events.csv
+     */
+    public static void main(String[] args) throws IOException {
+        System.out.println("order_id,event,time,arrival_time,barista_id,station_id,prep_minutes,loyalty_member,drink_type");
+        read(Paths.get(args.length > 0 ? args[0] : "data/journal"), e -> System.out.println(
+                e.getOrderId() + "," + e.getType() + "," + e.getTime() + "," + e.getArrivalTime() + ","
+                        + (e.getBaristaId() == null ? "" : e.getBaristaId()) + ","
+                        + (e.getStationId() == null ? "" : e.getStationId()) + "," + e.getPrepMinutes() + ","
+                        + e.isLoyaltyMember() + "," + (e.getDrinkType() == null ? "" : e.getDrinkType())));
+    }
+
+    // --- segments
+
+    private void map(long first) throws IOException {
+        Path file = dir.resolve(String.format("%s%020d%s", PREFIX, first, SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // An existing segment keeps its size even if segment-events has changed since
+            long bytes = channel.size() >= RECORD_BYTES ? channel.size() : (long) segmentEvents * RECORD_BYTES;
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes - bytes % RECORD_BYTES);
+        }
+        segmentFirst = first;
+        capacity = segment.capacity() / RECORD_BYTES;
+        position = 0;
+        committedPosition = 0;
+    }
+
+    private void roll() throws IOException {
+        segment.force();
+        map(segmentFirst + capacity);
+    }
+
+    private static List<Path> segmentFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> {
+                String name = f.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private static long firstIndex(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // --- record layout
+
+    private void encode(EventType type, Order order) {
+        LocalDateTime time = switch (type) {
+            case CREATED -> order.getArrivalTime();
+            case STARTED -> order.getStartTime();
+            case COMPLETED, CANCELLED -> order.getEndTime();
+        };
+        scratch.clear();
+        scratch.putLong(order.getId() == null ? 0 : order.getId());
+        scratch.putLong(toMillis(time));
+        scratch.putLong(toMillis(order.getArrivalTime()));
+        scratch.putLong(order.getBaristaId() == null ? 0 : order.getBaristaId());
+        scratch.putInt(order.getStationId() == null ? 0 : order.getStationId().intValue());
+        scratch.putShort((short) order.getPrepTimeMinutes());
+        scratch.put((byte) (type.ordinal() + 1));
+        scratch.put((byte) (order.isLoyaltyMember() ? 1 : 0));
+        scratch.put(drinkCode(order.getDrinkType()));
+        scratch.put((byte) 0).put((byte) 0).put((byte) 0);
+        crc.reset();
+        crc.update(scratch.array(), 0, CRC_OFFSET);
+        scratch.putInt((int) crc.getValue());
+    }
+
+    // Null when the record at {@code at} is torn, unwritten or corrupt
+    private static Event decode(ByteBuffer buffer, int at, CRC32 crc) {
+        crc.reset();
+        crc.update(buffer.slice(at, CRC_OFFSET));
+        if (buffer.getInt(at + CRC_OFFSET) != (int) crc.getValue()) return null;
+        int type = buffer.get(at + 38);
+        if (type < 1 || type > TYPES.length) return null;
+
+        Event event = new Event();
+        event.setOrderId(buffer.getLong(at));
+        event.setType(TYPES[type - 1]);
+        event.setTime(fromMillis(buffer.getLong(at + 8)));
+        event.setArrivalTime(fromMillis(buffer.getLong(at + 16)));
+        long baristaId = buffer.getLong(at + 24);
+        event.setBaristaId(baristaId == 0 ? null : baristaId);
+        int stationId = buffer.getInt(at + 32);
+        event.setStationId(stationId == 0 ? null : (long) stationId);
+        event.setPrepMinutes(buffer.getShort(at + 36));
+        event.setLoyaltyMember((buffer.get(at + 39) & 1) != 0);
+        int drink = buffer.get(at + 40);
+        event.setDrinkType(drink > 0 && drink < DRINKS.length ? DRINKS[drink] : null);
+        return event;
+    }
+
+    private static byte drinkCode(String drinkType) {
+        for (int i = 1; i < DRINKS.length; i++) {
+            if (DRINKS[i].equalsIgnoreCase(drinkType)) return (byte) i;
+        }
+        return 0;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time == null ? 0 : time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return millis == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.coffee.repo;
+
+import com.example.coffee.model.OrderStatus;
+import com.example.coffee.model.OrderSummary;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Custom fragment of OrderRepository: filtered, keyset-paged summaries of the live orders table
+public interface OrderQueryRepository {
+
+    @Data
+    class OrderQuery {
+        private List<OrderStatus> statuses;   // null/empty = any
+        private LocalDateTime arrivedFrom;    // inclusive
+        private LocalDateTime arrivedBefore;  // exclusive
+        private Long baristaId;
+        // Keyset cursor: only rows strictly after (afterArrival, afterId) in newest-first order
+        private LocalDateTime afterArrival;
+        private Long afterId;
+        private int limit = 50;
+    }
+
+    /** Newest first, ordered by (arrivalTime desc, id desc). */
+    List<OrderSummary> findSummaries(OrderQuery query);
+}
@@ -0,0 +1,21 @@
+package com.example.coffee.repo;
+
+import com.example.coffee.model.Order;
+import com.example.coffee.model.OrderSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.JoinType;
+
+import java.util.List;
+
+public class OrderQueryRepositoryImpl implements OrderQueryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderSummary> findSummaries(OrderQuery query) {
+        return OrderSummaryQueries.findSummaries(entityManager, Order.class, query,
+                order -> order.join("customer", JoinType.LEFT).get("isLoyaltyMember"));
+    }
+}
@@ -3,12 +3,18 @@ package com.example.coffee.repo;
 import com.example.coffee.model.Order;
 import com.example.coffee.model.OrderStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderQueryRepository {
     List<Order> findByStatus(OrderStatus status);
     List<Order> findByStatusOrderByPriorityScoreDesc(OrderStatus status);
+
+    // Startup recovery: one query for the orders and their customers instead of one per customer
+    @Query("select o from Order o left join fetch o.customer where o.status = :status")
+    List<Order> findWithCustomerByStatus(@Param("status") OrderStatus status);
 }
@@ -0,0 +1,70 @@
+package com.example.coffee.repo;
+
+import com.example.coffee.model.OrderSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset-paged OrderSummary query shared by the live orders table and the order_history archive,
+ * which have the same column names apart from where the loyalty flag comes from.
+ *
+ * Only the filters that are set end up in the WHERE clause, so MySQL can use the matching
+ * (status | barista_id, arrival_time, id) index instead of a "param IS NULL OR ..." scan.
+ * The keyset condition replaces OFFSET: page N costs the same as page 1.
+ */
+final class OrderSummaryQueries {
+
+    private OrderSummaryQueries() {
+    }
+
+    static <T> List<OrderSummary> findSummaries(EntityManager entityManager, Class<T> entity,
+                                                OrderQueryRepository.OrderQuery query,
+                                                Function<Root<T>, Expression<Boolean>> loyalty) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderSummary> cq = cb.createQuery(OrderSummary.class);
+        Root<T> order = cq.from(entity);
+        Path<LocalDateTime> arrival = order.get("arrivalTime");
+        Path<Long> id = order.get("id");
+
+        cq.select(cb.construct(OrderSummary.class,
+                id, order.get("customerName"), order.get("drinkType"), order.get("prepTimeMinutes"),
+                order.get("price"), order.get("status"), arrival, order.get("startTime"),
+                order.get("endTime"), order.get("priorityScore"), order.get("baristaId"),
+                loyalty.apply(order)));
+
+        List<Predicate> where = new ArrayList<>();
+        if (query.getStatuses() != null && !query.getStatuses().isEmpty()) {
+            where.add(order.get("status").in(query.getStatuses()));
+        }
+        if (query.getBaristaId() != null) {
+            where.add(cb.equal(order.get("baristaId"), query.getBaristaId()));
+        }
+        if (query.getArrivedFrom() != null) {
+            where.add(cb.greaterThanOrEqualTo(arrival, query.getArrivedFrom()));
+        }
+        if (query.getArrivedBefore() != null) {
+            where.add(cb.lessThan(arrival, query.getArrivedBefore()));
+        }
+        if (query.getAfterArrival() != null && query.getAfterId() != null) {
+            where.add(cb.or(
+                    cb.lessThan(arrival, query.getAfterArrival()),
+                    cb.and(cb.equal(arrival, query.getAfterArrival()), cb.lessThan(id, query.getAfterId()))));
+        }
+        cq.where(where.toArray(new Predicate[0]));
+        cq.orderBy(cb.desc(arrival), cb.desc(id));
+
+        return entityManager.createQuery(cq)
+                .setMaxResults(query.getLimit())
+                .getResultList();
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.coffee.repo;
+
+import com.example.coffee.model.Barista;
+import com.example.coffee.model.Order;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-behind for order and barista state changes (assign, complete, cancel, rescore).
+ *
+ * Callers mark rows dirty; the buffer keeps only the latest state per id and a scheduled flush
+ * writes everything in one transaction as plain JDBC batch UPDATEs. Inserts (new orders,
+ * new customers) still go through JPA, since the IDENTITY id is needed right away.
+ *
+ * Score-only changes are kept apart and written with a narrower UPDATE, and are dropped if
+ * the same order gets a full state change before the flush. Orders whose score didn't move
+ * never get marked (see PendingOrderQueue.rescoreDue), so they never reach the DB.
+ *
+ * The durability gap is at most one flush interval (coffee.write-behind.flush-interval-ms).
+ * On shutdown the buffer is flushed one last time.
+ *
+ * State changes are versioned: marking bumps the entity's @Version in memory (once per flushed
+ * write, however many changes were coalesced into it), and the UPDATE only
+ * applies if the row still has the version the first unflushed change started from. A row that was
+ * changed by someone else in the meantime (another instance, a manual fix) matches nothing; that
+ * change is counted as a conflict and dropped rather than overwriting the newer state. The row's
+ * current version is then read back, and the next change marked for it starts from that version, so
+ * one conflict costs one write instead of every later one (this also heals a stale version restored
+ * from a checkpoint).
+ *
+ * Every marked state change is also appended to the {@link CheckpointLog}, and each successful flush
+ * tells it how far the DB has caught up, so a warm restart knows which changes still need writing.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WriteBehindBuffer {
+
+    static final String UPDATE_ORDER =
+            "UPDATE orders SET status = ?, start_time = ?, end_time = ?, priority_score = ?, times_skipped = ?, barista_id = ?, version = ? WHERE id = ? AND version = ?";
+    static final String UPDATE_ORDER_SCORE =
+            "UPDATE orders SET priority_score = ? WHERE id = ?";
+    static final String UPDATE_BARISTA =
+            "UPDATE baristas SET busy_until = ?, total_orders_completed = ?, total_minutes_assigned = ?, current_order_id = ?, version = ? WHERE id = ? AND version = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CheckpointLog checkpointLog;
+
+    // Latest state per id, captured when marked so later mutation of the entity can't tear a row
+    private Map<Long, Object[]> dirtyOrders = new LinkedHashMap<>();
+    private Map<Long, Object[]> dirtyScores = new LinkedHashMap<>();
+    private Map<Long, Object[]> dirtyBaristas = new LinkedHashMap<>();
+    // DB version of rows whose last write conflicted, for the next change marked on them
+    private final Map<Long, Long> rebasedOrders = new HashMap<>();
+    private final Map<Long, Long> rebasedBaristas = new HashMap<>();
+    private long versionConflicts;
+
+    /** Queues the order's current status, times and score, and bumps its version. */
+    public synchronized void orderChanged(Order order) {
+        dirtyScores.remove(order.getId()); // the full row carries the score too
+        long expected = expectedVersion(dirtyOrders.get(order.getId()), rebasedOrders.remove(order.getId()), order.getVersion());
+        order.setVersion(expected + 1);
+        dirtyOrders.put(order.getId(), new Object[] {
+                order.getStatus() == null ? null : order.getStatus().name(),
+                order.getStartTime(),
+                order.getEndTime(),
+                order.getPriorityScore(),
+                order.getTimesSkipped(),
+                order.getBaristaId(),
+                order.getVersion(),
+                order.getId(),
+                expected
+        });
+        checkpointLog.orderChanged(order, false);
+    }
+
+    /** Queues only the order's score. */
+    public synchronized void scoreChanged(Order order) {
+        Object[] full = dirtyOrders.get(order.getId());
+        if (full != null) {
+            full[3] = order.getPriorityScore();
+            return;
+        }
+        dirtyScores.put(order.getId(), new Object[] { order.getPriorityScore(), order.getId() });
+    }
+
+    public synchronized void baristaChanged(Barista barista) {
+        long expected = expectedVersion(dirtyBaristas.get(barista.getId()), rebasedBaristas.remove(barista.getId()), barista.getVersion());
+        barista.setVersion(expected + 1);
+        dirtyBaristas.put(barista.getId(), new Object[] {
+                barista.getBusyUntil(),
+                barista.getTotalOrdersCompleted(),
+                barista.getTotalMinutesAssigned(),
+                barista.getCurrentOrderId(),
+                barista.getVersion(),
+                barista.getId(),
+                expected
+        });
+        checkpointLog.baristaChanged(barista, false);
+    }
+
+    /** Rows dropped because the DB had moved on to another version. */
+    public synchronized long getVersionConflicts() {
+        return versionConflicts;
+    }
+
+    public synchronized int pendingCount() {
+        return dirtyOrders.size() + dirtyScores.size() + dirtyBaristas.size();
+    }
+
+    /** Writes everything marked so far. Returns the number of rows sent. */
+    @Scheduled(fixedDelayString = "${coffee.write-behind.flush-interval-ms:500}")
+    public int flush() {
+        Map<Long, Object[]> orders;
+        Map<Long, Object[]> scores;
+        Map<Long, Object[]> baristas;
+        long through;
+        synchronized (this) {
+            through = checkpointLog.sequence(); // every change logged so far is in the maps taken below
+            if (dirtyOrders.isEmpty() && dirtyScores.isEmpty() && dirtyBaristas.isEmpty()) {
+                checkpointLog.flushed(through);
+                return 0;
+            }
+            orders = dirtyOrders;
+            scores = dirtyScores;
+            baristas = dirtyBaristas;
+            dirtyOrders = new LinkedHashMap<>();
+            dirtyScores = new LinkedHashMap<>();
+            dirtyBaristas = new LinkedHashMap<>();
+        }
+
+        List<Long> staleOrders = new ArrayList<>();
+        List<Long> staleBaristas = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                staleOrders.addAll(batch(UPDATE_ORDER, orders));
+                batch(UPDATE_ORDER_SCORE, scores);
+                staleBaristas.addAll(batch(UPDATE_BARISTA, baristas));
+            });
+        } catch (RuntimeException e) {
+            log.warn("Write-behind flush of {} rows failed, will retry", orders.size() + scores.size() + baristas.size(), e);
+            requeue(orders, scores, baristas);
+            return 0;
+        }
+        try {
+            rebase("orders", staleOrders, true);
+            rebase("baristas", staleBaristas, false);
+        } catch (RuntimeException e) {
+            // The writes are in; those rows just conflict once more and get another try
+            log.warn("Write-behind could not read back {} conflicting rows", staleOrders.size() + staleBaristas.size(), e);
+        }
+        checkpointLog.flushed(through);
+        return orders.size() + scores.size() + baristas.size();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // Returns the ids of the versioned rows that matched nothing
+    private List<Long> batch(String sql, Map<Long, Object[]> rows) {
+        if (rows.isEmpty()) return Collections.emptyList();
+        boolean versioned = sql.endsWith("AND version = ?");
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (Object[] row : rows.values()) {
+            Object[] copy = row.clone();
+            for (int i = 0; i < copy.length; i++) {
+                if (copy[i] instanceof LocalDateTime time) copy[i] = java.sql.Timestamp.valueOf(time);
+            }
+            args.add(copy);
+        }
+        int[] counts = jdbcTemplate.batchUpdate(sql, args);
+        if (!versioned) return Collections.emptyList();
+        List<Long> stale = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) stale.add((Long) args.get(i)[args.get(i).length - 2]); // SUCCESS_NO_INFO (-2) counts as applied
+        }
+        if (!stale.isEmpty()) {
+            synchronized (this) {
+                versionConflicts += stale.size();
+            }
+            log.warn("Write-behind dropped {} stale rows (version conflict), ids {}", stale.size(), stale);
+        }
+        return stale;
+    }
+
+    // Reads back the versions the conflicting rows really have; a row that is gone (archived) is left alone
+    private void rebase(String table, List<Long> ids, boolean orders) {
+        if (ids.isEmpty()) return;
+        Map<Long, Long> current = new HashMap<>();
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        jdbcTemplate.query("SELECT id, version FROM " + table + " WHERE id IN (" + placeholders + ")",
+                rs -> { current.put(rs.getLong(1), rs.getLong(2)); }, ids.toArray());
+        synchronized (this) {
+            Map<Long, Object[]> dirty = orders ? dirtyOrders : dirtyBaristas;
+            Map<Long, Long> rebased = orders ? rebasedOrders : rebasedBaristas;
+            current.forEach((id, version) -> {
+                Object[] pending = dirty.get(id);
+                if (pending != null) {
+                    pending[pending.length - 1] = version; // marked since the flush started, from the dropped version
+                } else {
+                    rebased.put(id, version);
+                }
+            });
+        }
+    }
+
+    // Unflushed changes are applied as one, so they all start from the version the first one saw;
+    // after a conflict, from the version the row really has
+    private static long expectedVersion(Object[] pending, Long rebased, long current) {
+        if (pending != null) return (long) pending[pending.length - 1];
+        return rebased != null ? rebased : current;
+    }
+
+    // A newer row marked after a failed flush still has to start from the failed row's version
+    private static Object[] keepExpected(Object[] newer, Object[] failed) {
+        newer[newer.length - 1] = failed[failed.length - 1];
+        return newer;
+    }
+
+    // Put a failed batch back; a newer state marked for the same row meanwhile wins
+    private synchronized void requeue(Map<Long, Object[]> orders, Map<Long, Object[]> scores, Map<Long, Object[]> baristas) {
+        orders.forEach((id, row) -> dirtyOrders.merge(id, row, WriteBehindBuffer::keepExpected));
+        scores.forEach((id, row) -> {
+            if (!dirtyOrders.containsKey(id)) dirtyScores.putIfAbsent(id, row);
+        });
+        baristas.forEach((id, row) -> dirtyBaristas.merge(id, row, WriteBehindBuffer::keepExpected));
+    }
+}
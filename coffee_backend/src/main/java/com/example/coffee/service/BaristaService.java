@@ -1,20 +1,39 @@
 package com.example.coffee.service;
 
+import com.example.coffee.dispatch.AssignmentMode;
+import com.example.coffee.dispatch.CompletionScheduler;
+import com.example.coffee.dispatch.DispatchMetrics;
+import com.example.coffee.dispatch.InFlightOrders;
+import com.example.coffee.dispatch.PendingOrderQueue;
+import com.example.coffee.dispatch.ScoringParameters;
+import com.example.coffee.dispatch.ScoringStrategy;
+import com.example.coffee.dispatch.StationShard;
+import com.example.coffee.dispatch.StationShards;
 import com.example.coffee.model.Barista;
 import com.example.coffee.model.Order;
 import com.example.coffee.model.OrderStatus;
 import com.example.coffee.repo.BaristaRepository;
+import com.example.coffee.repo.CheckpointLog;
+import com.example.coffee.repo.OrderJournal;
 import com.example.coffee.repo.OrderRepository;
+import com.example.coffee.repo.WriteBehindBuffer;
 import lombok.RequiredArgsConstructor;
-import org.springframework.scheduling.annotation.Scheduled;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Clock;
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class BaristaService {
@@ -22,98 +41,306 @@ public class BaristaService {
     private final BaristaRepository baristaRepository;
     private final OrderRepository orderRepository;
     private final PriorityService priorityService;
+    private final StationShards stations;
+    private final CompletionScheduler completionScheduler;
+    private final InFlightOrders inFlight;
+    private final WriteBehindBuffer writeBehind;
+    private final LiveBoardService liveBoard;
+    private final DispatchMetrics metrics;
+    private final LiveKpiService kpis;
+    private final DispatchCheckpointService checkpoints;
+    private final CheckpointLog checkpointLog;
+    private final OrderJournal journal;
     private final Clock clock;
 
-    @Scheduled(fixedRate = 5000) // Check every 5 seconds for assignment
-    @Transactional
-    public void assignOrders() {
-        List<Barista> baristas = baristaRepository.findAll();
-        List<Order> pendingOrders = orderRepository.findByStatus(OrderStatus.PENDING);
+    // Candidate orders per idle barista for the batch modes, and the hard cap on the list
+    private static final int CANDIDATES_PER_BARISTA = 8;
+    private static final int MAX_CANDIDATES = 64;
 
-        if (pendingOrders.isEmpty()) return;
+    @Value("${coffee.dispatch.assignment-mode:GREEDY}")
+    private volatile AssignmentMode assignmentMode;
 
-        // Recalculate priorities
-        for (Order order : pendingOrders) {
-            order.setPriorityScore(priorityService.calculatePriority(order));
-        }
-        // Save updated scores? Only if we persist them, but for now we can just use in memory list
-        // Sort by priority descending
-        pendingOrders.sort(Comparator.comparingDouble(Order::getPriorityScore).reversed());
+    // Seeded into an empty database; size it with the staffing planner (POST /simulation/staffing)
+    @Value("${coffee.baristas.initial:3}")
+    private int initialBaristas;
+
+    // One dispatch tick of one station, on that station's own thread (every coffee.dispatch.tick-ms)
+    public void assignOrders(StationShard station) {
+        long started = System.nanoTime();
+        int rescored = dispatch(station);
+        metrics.stationTicked(station, System.nanoTime() - started, rescored);
+    }
+
+    // Returns how many orders were rescored
+    private int dispatch(StationShard station) {
+        PendingOrderQueue pendingQueue = station.getQueue();
+        if (pendingQueue.isEmpty()) return 0;
+        // Baristas stay resident: their state is written behind, so re-reading them from MySQL could be stale
+        List<Barista> baristas = station.getBaristas();
+
+        // Only orders that crossed a score boundary since the last tick get rescored and re-keyed,
+        // and only the ones whose score actually moved get written
+        int rescored = pendingQueue.rescoreDue(LocalDateTime.now(clock), priorityService, writeBehind::scoreChanged);
 
+        List<Barista> idle = new ArrayList<>();
+        int totalMinutes = 0;
         for (Barista barista : baristas) {
-            if (!barista.isBusy()) {
-                // Find best order for this barista
-                // Simple greedy: take highest priority
-                // Advanced: check workload logic (overloaded baristas prefer short orders)
-                
-                if (pendingOrders.isEmpty()) break;
-                
-                Order orderToAssign = pendingOrders.get(0); 
-                // We could iterate to find a "better" fit if barista is overloaded, but keeping it simple for now
-                // as per "Available baristas get highest-priority compatible order"
-                
-                assignOrderToBarista(barista, orderToAssign);
-                pendingOrders.remove(orderToAssign);
+            totalMinutes += barista.getTotalMinutesAssigned();
+            // Free once the drink is due and its completion has been processed
+            if (!barista.isBusy(clock) && !inFlight.isMaking(barista.getId())) idle.add(barista);
+        }
+        if (idle.isEmpty()) return rescored;
+
+        // Match the idle baristas against the top of the queue in one go
+        List<Order> candidates = pendingQueue.top(Math.min(idle.size() * CANDIDATES_PER_BARISTA, MAX_CANDIDATES));
+        int[] loads = new int[idle.size()];
+        for (int b = 0; b < loads.length; b++) loads[b] = idle.get(b).getTotalMinutesAssigned();
+        double[] scores = new double[candidates.size()];
+        int[] preps = new int[candidates.size()];
+        long[] ties = new long[candidates.size()];
+        for (int c = 0; c < scores.length; c++) {
+            Order order = candidates.get(c);
+            scores[c] = order.getPriorityScore();
+            preps[c] = order.getPrepTimeMinutes();
+            ties[c] = order.getId(); // equal scores: oldest first, same as the queue
+        }
+        int[] picks = new int[idle.size()];
+        station.getBatchAssigner().assign(assignmentMode, idle.size(), loads, (double) totalMinutes / baristas.size(),
+                candidates.size(), scores, preps, ties, picks);
+
+        for (int b = 0; b < picks.length; b++) {
+            if (picks[b] < 0) continue;
+            // Null if it was cancelled since top() looked at the queue; the barista waits for the next tick
+            Order orderToAssign = pendingQueue.remove(candidates.get(picks[b]).getId());
+            if (orderToAssign != null) {
+                assignOrderToBarista(idle.get(b), orderToAssign);
             }
         }
-        
-        // Persist priority updates for pending orders that weren't assigned
-        orderRepository.saveAll(pendingOrders);
+        // Every change of this tick goes out with the next write-behind flush, as one batch
+        return rescored;
     }
 
-    @Scheduled(fixedRate = 2000) // Check every 2 seconds for completions
-    @Transactional
-    public void completeOrders() {
-        List<Barista> baristas = baristaRepository.findAll();
-        LocalDateTime now = LocalDateTime.now(clock);
+    public AssignmentMode getAssignmentMode() {
+        return assignmentMode;
+    }
 
-        for (Barista barista : baristas) {
-            if (barista.getBusyUntil() != null && barista.getBusyUntil().isBefore(now)) {
-                // Barista finished!
-                // Find their processing order? 
-                // We didn't link Barista -> Order directly in DB (OneToMany), but we can find the order by status and time?
-                // Actually, standard practice would be to store "currentOrderId" on Barista, or "baristaId" on Order.
-                // Let's check Order model. It has startTime/endTime but no baristaId.
-                // However, we can query orders that are PROCESSING and have startTime + prepTime < now.
-            }
+    // Switches live dispatch strategy from the next tick on
+    public void setAssignmentMode(AssignmentMode assignmentMode) {
+        this.assignmentMode = assignmentMode;
+    }
+
+    /**
+     * Compiles the parameters (IllegalArgumentException if invalid), makes them the live scoring for
+     * every station and rescores what is already queued, so no restart is needed. Returns how many
+     * queued orders changed score.
+     */
+    public int setScoring(ScoringParameters parameters) {
+        priorityService.setStrategy(ScoringStrategy.compile(parameters));
+        int changed = 0;
+        for (StationShard station : stations.all()) {
+            changed += station.getQueue().rescoreAll(priorityService, writeBehind::scoreChanged);
         }
-        
-        // Better approach: Find all PROCESSING orders that should be done by now
-        List<Order> processingOrders = orderRepository.findByStatus(OrderStatus.PROCESSING);
-        for (Order order : processingOrders) {
-             LocalDateTime expected = order.getStartTime().plusMinutes(order.getPrepTimeMinutes());
-             if (expected.isBefore(now)) {
-                 order.setStatus(OrderStatus.COMPLETED);
-                 order.setEndTime(now);
-                 orderRepository.save(order);
-             }
+        return changed;
+    }
+
+    // Called by the CompletionScheduler with every batch of drinks that became due at the same moment
+    public void completeOrders(List<Order> dueOrders) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (Order order : dueOrders) {
+            order.setStatus(OrderStatus.COMPLETED);
+            order.setEndTime(now);
+            metrics.orderCompleted(order, now);
+            kpis.orderCompleted(order);
+            writeBehind.orderChanged(order);
+            journal.record(OrderJournal.EventType.COMPLETED, order);
+            liveBoard.orderChanged(order);
+            releaseBarista(order);
         }
     }
 
+    // The barista's side of a completion; a no-op if it was already released (a retried batch)
+    private void releaseBarista(Order order) {
+        InFlightOrders.Assignment assignment = inFlight.forOrder(order.getId());
+        if (assignment == null) return;
+        Barista barista = assignment.getBarista();
+        barista.setTotalOrdersCompleted(barista.getTotalOrdersCompleted() + 1);
+        if (Objects.equals(barista.getCurrentOrderId(), order.getId())) barista.setCurrentOrderId(null);
+        writeBehind.baristaChanged(barista);
+        liveBoard.baristaChanged(barista);
+        // Last, so the station thread can't hand the barista a new order before the fields above are done
+        inFlight.finish(order.getId());
+    }
+
     private void assignOrderToBarista(Barista barista, Order order) {
         order.setStatus(OrderStatus.PROCESSING);
         order.setStartTime(LocalDateTime.now(clock));
+        order.setBaristaId(barista.getId());
         // Calculate finish time
         LocalDateTime finishTime = LocalDateTime.now(clock).plusMinutes(order.getPrepTimeMinutes());
         barista.setBusyUntil(finishTime);
-        barista.setTotalOrdersCompleted(barista.getTotalOrdersCompleted() + 1);
+        barista.setCurrentOrderId(order.getId());
         barista.setTotalMinutesAssigned(barista.getTotalMinutesAssigned() + order.getPrepTimeMinutes());
 
-        orderRepository.save(order);
-        baristaRepository.save(barista);
+        inFlight.start(barista, order);
+        completionScheduler.track(order);
+        metrics.orderAssigned(order);
+        kpis.orderStarted(order);
+        writeBehind.orderChanged(order);
+        writeBehind.baristaChanged(barista);
+        journal.record(OrderJournal.EventType.STARTED, order);
+        liveBoard.orderChanged(order);
+        liveBoard.baristaChanged(barista);
     }
 
     public List<Barista> getAllBaristas() {
-        return baristaRepository.findAll();
+        List<Barista> all = new ArrayList<>();
+        for (StationShard station : stations.all()) {
+            all.addAll(station.getBaristas());
+        }
+        return all;
+    }
+
+    /** Who is making what right now, soonest due first. */
+    public List<InFlightOrders.Assignment> getInFlight() {
+        return inFlight.all();
+    }
+
+    /** The order the barista is making, or null when they are free. */
+    public Order getCurrentOrder(Long baristaId) {
+        InFlightOrders.Assignment assignment = inFlight.forBarista(baristaId);
+        return assignment == null ? null : assignment.getOrder();
+    }
+
+    // Empty if there is no such station
+    public Optional<List<Barista>> getBaristas(Long stationId) {
+        return stations.get(stationId).map(station -> List.copyOf(station.getBaristas()));
+    }
+
+    // Hires a barista at a station; they are picked up from that station's next tick
+    public Barista addBarista(Barista barista) {
+        barista.setId(null);
+        barista.setStationId(StationShards.stationOf(barista.getStationId()));
+        Barista saved = baristaRepository.save(barista);
+        StationShard station = stations.forStation(saved.getStationId());
+        checkpointLog.baristaHired(saved, () -> station.getBaristas().add(saved));
+        liveBoard.baristaChanged(saved);
+        return saved;
     }
     
-    // Initializer to create baristas if none exist
+    // Startup recovery: from the local checkpoint when the last run left one, otherwise from MySQL.
+    // Either way the resident baristas come first, then the orders that refer to them.
     @jakarta.annotation.PostConstruct
+    public void recover() {
+        long started = System.nanoTime();
+        Optional<CheckpointLog.WarmState> warm = checkpoints.takeWarmState();
+        if (warm.isPresent() && !matchesDatabase(warm.get())) {
+            log.warn("Dispatch checkpoint {} doesn't match the database, starting cold", warm.get().getThrough());
+            warm = Optional.empty();
+        }
+        if (warm.isPresent()) {
+            warmStart(warm.get());
+            log.info("Warm start from checkpoint {} (+{} logged changes): {} baristas, {} active orders in {} ms",
+                    warm.get().getThrough(), warm.get().getReplayedRecords(), warm.get().getBaristas().size(),
+                    warm.get().getOrders().size(), (System.nanoTime() - started) / 1_000_000);
+        } else {
+            initBaristas();
+            initPendingQueue();
+            initCompletions();
+        }
+        completionScheduler.start(this::completeOrders);
+        checkpoints.checkpoint(); // the next restart starts from here
+    }
+
+    // A checkpoint left next to a database that was since recreated or restored would point at rows
+    // that aren't there; the baristas and the newest active order are cheap to look up
+    private boolean matchesDatabase(CheckpointLog.WarmState state) {
+        List<Long> baristaIds = state.getBaristas().stream().map(Barista::getId).toList();
+        if (baristaIds.isEmpty() || baristaRepository.findAllById(baristaIds).size() != baristaIds.size()) return false;
+        return state.getOrders().stream().map(Order::getId).max(Long::compare)
+                .map(orderRepository::existsById).orElse(true);
+    }
+
+    private void warmStart(CheckpointLog.WarmState state) {
+        resumeBaristas(state.getBaristas());
+        // Changes the DB may have missed when the last run stopped (the write-behind gap) are marked
+        // again, starting from the version the DB had before them
+        for (Barista barista : state.getUnflushedBaristas()) {
+            barista.setVersion(barista.getVersion() - 1);
+            writeBehind.baristaChanged(barista);
+        }
+        for (Order order : state.getUnflushedOrders()) {
+            order.setVersion(order.getVersion() - 1);
+            writeBehind.orderChanged(order);
+        }
+        List<Order> processing = new ArrayList<>();
+        for (Order order : state.getOrders()) {
+            if (order.getStatus() == OrderStatus.PENDING) resumePending(order);
+            else processing.add(order);
+        }
+        resumeInFlight(processing);
+    }
+
+    // Initializer to create baristas if none exist
     public void initBaristas() {
         if (baristaRepository.count() == 0) {
-            baristaRepository.save(new Barista(null, "Barista 1", null, 0, 0));
-            baristaRepository.save(new Barista(null, "Barista 2", null, 0, 0));
-            baristaRepository.save(new Barista(null, "Barista 3", null, 0, 0));
+            for (int i = 1; i <= initialBaristas; i++) {
+                baristaRepository.save(new Barista(null, "Barista " + i, null, 0, 0, StationShards.DEFAULT_STATION, null, 0));
+            }
+        }
+        resumeBaristas(baristaRepository.findAll());
+    }
+
+    // One-time load of orders left PENDING in the DB; after this each station's queue is kept in sync incrementally
+    public void initPendingQueue() {
+        for (Order order : orderRepository.findWithCustomerByStatus(OrderStatus.PENDING)) {
+            resumePending(order);
+        }
+    }
+
+    // Orders that were mid-preparation at shutdown still need completing; after this no polling is needed
+    public void initCompletions() {
+        resumeInFlight(orderRepository.findWithCustomerByStatus(OrderStatus.PROCESSING));
+    }
+
+    private void resumeBaristas(List<Barista> baristas) {
+        for (Barista barista : baristas) {
+            stations.forStation(barista.getStationId()).getBaristas().add(barista);
+            liveBoard.baristaChanged(barista);
+        }
+    }
+
+    private void resumePending(Order order) {
+        stations.forStation(order.getStationId()).getQueue().add(order, priorityService);
+        liveBoard.orderChanged(order);
+    }
+
+    // Rebuilds the in-flight table from PROCESSING orders and repairs currentOrderId where it disagrees
+    private void resumeInFlight(List<Order> processing) {
+        Map<Long, Barista> baristasById = new HashMap<>();
+        for (Barista barista : getAllBaristas()) {
+            baristasById.put(barista.getId(), barista);
+        }
+        for (Order order : processing) {
+            Barista barista = order.getBaristaId() == null ? null : baristasById.get(order.getBaristaId());
+            if (barista != null && order.getStartTime() != null) {
+                inFlight.start(barista, order);
+            }
+            completionScheduler.track(order);
+            liveBoard.orderChanged(order);
         }
+        for (Barista barista : baristasById.values()) {
+            InFlightOrders.Assignment assignment = inFlight.forBarista(barista.getId());
+            Long making = assignment == null ? null : assignment.getOrder().getId();
+            if (!Objects.equals(barista.getCurrentOrderId(), making)) {
+                barista.setCurrentOrderId(making);
+                writeBehind.baristaChanged(barista);
+            }
+        }
+    }
+
+    // Dispatch starts once everything is loaded; stations that appear later start on first use
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDispatch() {
+        stations.start(this::assignOrders);
     }
 }
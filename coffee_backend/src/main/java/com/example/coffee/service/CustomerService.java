@@ -0,0 +1,112 @@
+package com.example.coffee.service;
+
+import com.example.coffee.model.Customer;
+import com.example.coffee.repo.CustomerRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Customer lookups with a read-through cache in front of CustomerRepository.
+ *
+ * POS searches by email and order creation by id both hit the cache first, so a regular's second
+ * order (and the loyalty flag the scorer reads from it) doesn't cost a query. Entries expire after
+ * coffee.customer-cache.ttl-minutes and the least valuable ones are evicted past max-size.
+ * Misses aren't cached, so a customer created elsewhere is found on the next lookup.
+ */
+@Service
+public class CustomerService implements MeterBinder {
+
+    @Data
+    public static class CacheStatsView {
+        private final long hits;
+        private final long misses;
+        private final double hitRate;
+        private final long evictions;
+        private final long size;
+    }
+
+    private final CustomerRepository customerRepository;
+    private final Cache<Long, Customer> byId;
+    private final Cache<String, Customer> byEmail;
+
+    public CustomerService(CustomerRepository customerRepository,
+                           @Value("${coffee.customer-cache.max-size:10000}") long maxSize,
+                           @Value("${coffee.customer-cache.ttl-minutes:30}") long ttlMinutes) {
+        this.customerRepository = customerRepository;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        this.byEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Customer> findById(Long id) {
+        Customer cached = byId.getIfPresent(id);
+        if (cached != null) return Optional.of(cached);
+        Optional<Customer> loaded = customerRepository.findById(id);
+        loaded.ifPresent(this::cache);
+        return loaded;
+    }
+
+    public Optional<Customer> findByEmail(String email) {
+        Customer cached = byEmail.getIfPresent(email);
+        if (cached != null) return Optional.of(cached);
+        Optional<Customer> loaded = customerRepository.findByEmail(email);
+        loaded.ifPresent(this::cache);
+        return loaded;
+    }
+
+    public Customer createCustomer(Customer customer) {
+        // A save with an id is an update: drop whatever we had under the old id/email first
+        if (customer.getId() != null) {
+            Customer previous = byId.getIfPresent(customer.getId());
+            if (previous != null) evict(previous);
+        }
+        Customer saved = customerRepository.save(customer);
+        evict(saved);
+        return saved;
+    }
+
+    // Same stats as getCacheStats, as cache_* meters on /actuator/prometheus
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, "customers.byId");
+        CaffeineCacheMetrics.monitor(registry, byEmail, "customers.byEmail");
+    }
+
+    public CacheStatsView getCacheStats() {
+        CacheStats id = byId.stats();
+        CacheStats email = byEmail.stats();
+        long hits = id.hitCount() + email.hitCount();
+        long misses = id.missCount() + email.missCount();
+        return new CacheStatsView(hits, misses,
+                hits + misses == 0 ? 0.0 : (double) hits / (hits + misses),
+                id.evictionCount() + email.evictionCount(),
+                byId.estimatedSize());
+    }
+
+    private void cache(Customer customer) {
+        byId.put(customer.getId(), customer);
+        if (customer.getEmail() != null) byEmail.put(customer.getEmail(), customer);
+    }
+
+    private void evict(Customer customer) {
+        if (customer.getId() != null) byId.invalidate(customer.getId());
+        if (customer.getEmail() != null) byEmail.invalidate(customer.getEmail());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.coffee.service;
+
+import com.example.coffee.dispatch.InFlightOrders;
+import com.example.coffee.dispatch.StationShard;
+import com.example.coffee.dispatch.StationShards;
+import com.example.coffee.model.Barista;
+import com.example.coffee.model.Order;
+import com.example.coffee.repo.CheckpointLog;
+import com.example.coffee.repo.WriteBehindBuffer;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Periodic snapshot of the dispatch state (queued and in-flight orders, baristas) into the
+ * {@link CheckpointLog}, so a restart mid-rush resumes from local disk instead of MySQL.
+ *
+ * A snapshot starts a new change log, flushes the write-behind buffer, and is only written if that
+ * flush covered everything logged before it. It is also taken right after startup and on shutdown.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DispatchCheckpointService {
+
+    private final CheckpointLog checkpointLog;
+    private final WriteBehindBuffer writeBehind;
+    private final StationShards stations;
+    private final InFlightOrders inFlight;
+
+    /** What the last run left behind, handed out once; empty when the app has to start cold. */
+    public Optional<CheckpointLog.WarmState> takeWarmState() {
+        return checkpointLog.takeWarmState();
+    }
+
+    @Scheduled(fixedDelayString = "${coffee.checkpoint.interval-ms:30000}")
+    public synchronized void checkpoint() {
+        if (!checkpointLog.isEnabled()) return;
+        long started = System.nanoTime();
+        long through = checkpointLog.rotate();
+        writeBehind.flush();
+        if (checkpointLog.lastFlushed() < through) {
+            log.warn("Skipping dispatch checkpoint: write-behind flush did not complete");
+            return;
+        }
+
+        List<Barista> baristas = new ArrayList<>();
+        List<Order> orders = new ArrayList<>();
+        for (StationShard station : stations.all()) {
+            baristas.addAll(station.getBaristas());
+            orders.addAll(station.getQueue().snapshot());
+        }
+        for (InFlightOrders.Assignment assignment : inFlight.all()) {
+            orders.add(assignment.getOrder());
+        }
+        checkpointLog.writeSnapshot(through, baristas, orders);
+        log.debug("Dispatch checkpoint of {} orders and {} baristas in {} ms",
+                orders.size(), baristas.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        checkpoint();
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.coffee.service;
+
+import com.example.coffee.model.Barista;
+import com.example.coffee.model.Order;
+import com.example.coffee.model.OrderStatus;
+import jakarta.annotation.PreDestroy;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Live order board for the tablets, pushed over SSE instead of polled.
+ *
+ * A new subscriber gets one "snapshot" event (active orders + baristas), then an "order" or "barista"
+ * event for every change published by OrderService / BaristaService. The board keeps its own copy of
+ * the active orders, so neither the snapshot nor the events touch the DB; completed and cancelled
+ * orders are sent once and then dropped.
+ *
+ * Sends happen on a single fan-out thread, so a slow tablet never holds up dispatch and every
+ * subscriber sees events in publish order, after its snapshot. What gets queued and kept is a copy
+ * taken when the change is published: the entities go on changing on the station threads meanwhile.
+ */
+@Service
+public class LiveBoardService {
+
+    @Data
+    public static class BoardSnapshot {
+        private final List<BoardOrder> orders;
+        private final List<BoardBarista> baristas;
+    }
+
+    // What the tablets show of an order, as it was when the change was published
+    @Data
+    public static class BoardOrder {
+        private final Long id;
+        private final String customerName;
+        private final String drinkType;
+        private final int prepTimeMinutes;
+        private final double price;
+        private final LocalDateTime arrivalTime;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+        private final OrderStatus status;
+        private final Long baristaId;
+        private final Long stationId;
+        private final double priorityScore;
+        private final int timesSkipped;
+        @JsonProperty("isLoyaltyMember")
+        private final boolean loyaltyMember;
+
+        BoardOrder(Order order) {
+            id = order.getId();
+            customerName = order.getCustomerName();
+            drinkType = order.getDrinkType();
+            prepTimeMinutes = order.getPrepTimeMinutes();
+            price = order.getPrice();
+            arrivalTime = order.getArrivalTime();
+            startTime = order.getStartTime();
+            endTime = order.getEndTime();
+            status = order.getStatus();
+            baristaId = order.getBaristaId();
+            stationId = order.getStationId();
+            priorityScore = order.getPriorityScore();
+            timesSkipped = order.getTimesSkipped();
+            loyaltyMember = order.isLoyaltyMember();
+        }
+    }
+
+    @Data
+    public static class BoardBarista {
+        private final Long id;
+        private final String name;
+        private final LocalDateTime busyUntil;
+        private final int totalOrdersCompleted;
+        private final int totalMinutesAssigned;
+        private final Long stationId;
+        private final Long currentOrderId;
+
+        BoardBarista(Barista barista) {
+            id = barista.getId();
+            name = barista.getName();
+            busyUntil = barista.getBusyUntil();
+            totalOrdersCompleted = barista.getTotalOrdersCompleted();
+            totalMinutesAssigned = barista.getTotalMinutesAssigned();
+            stationId = barista.getStationId();
+            currentOrderId = barista.getCurrentOrderId();
+        }
+    }
+
+    private final Map<Long, BoardOrder> activeOrders = new LinkedHashMap<>();
+    private final Map<Long, BoardBarista> baristas = new LinkedHashMap<>();
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>(); // written only by the fan-out thread
+    private final ExecutorService fanOut = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "live-board");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Called by the thread that made the change, before it touches the order again
+    public void orderChanged(Order order) {
+        BoardOrder copy = new BoardOrder(order);
+        synchronized (this) {
+            if (copy.getStatus() == OrderStatus.PENDING || copy.getStatus() == OrderStatus.PROCESSING) {
+                activeOrders.put(copy.getId(), copy);
+            } else {
+                activeOrders.remove(copy.getId());
+            }
+        }
+        fanOut.execute(() -> broadcast("order", copy));
+    }
+
+    public void baristaChanged(Barista barista) {
+        BoardBarista copy = new BoardBarista(barista);
+        synchronized (this) {
+            baristas.put(copy.getId(), copy);
+        }
+        fanOut.execute(() -> broadcast("barista", copy));
+    }
+
+    public synchronized BoardSnapshot snapshot() {
+        return new BoardSnapshot(new ArrayList<>(activeOrders.values()), new ArrayList<>(baristas.values()));
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L); // no timeout; the browser's EventSource reconnects if it drops
+        // Queued behind any pending events, so the snapshot is never older than what follows it
+        fanOut.execute(() -> {
+            if (send(emitter, "snapshot", snapshot())) {
+                subscribers.add(emitter);
+            }
+        });
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // Comment line that keeps idle connections from being closed by proxies, and finds dead ones
+    @Scheduled(fixedRate = 15000)
+    public void heartbeat() {
+        fanOut.execute(() -> subscribers.removeIf(emitter -> {
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+                return false;
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+                return true;
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void stop() {
+        fanOut.execute(() -> {
+            subscribers.forEach(SseEmitter::complete);
+            subscribers.clear();
+        });
+        fanOut.shutdown();
+    }
+
+    // Only ever called on the fan-out thread
+    private void broadcast(String name, Object data) {
+        subscribers.removeIf(emitter -> !send(emitter, name, data));
+    }
+
+    private static boolean send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Tablet went away; drop it
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+}
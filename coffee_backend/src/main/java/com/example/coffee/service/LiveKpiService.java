@@ -0,0 +1,234 @@
+package com.example.coffee.service;
+
+import com.example.coffee.model.Order;
+import com.example.coffee.simulation.SimulationRun;
+import lombok.Data;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live shop KPIs over the last 5, 15 and 60 minutes, fed by order lifecycle transitions
+ * (arrived, started, completed, cancelled) instead of queries over the orders table.
+ *
+ * Events land in one-minute slices (an hour's worth, reused round-robin). Each window keeps running
+ * totals: an event is added to its slice and to every window, and when a minute rolls over, the slice
+ * leaving a window is subtracted from it. Wait and service times go into the same 1-second-bucket
+ * histograms the simulation uses, which add and subtract exactly. Reading the KPIs therefore costs
+ * the same whatever the order volume: a fixed scan of each window's buckets.
+ *
+ * Wait is arrival -> start and service is start -> completion. A complaint is a wait over
+ * URGENCY_THRESHOLD minutes (same rule as the simulation), a timeout a wait over MAX_WAIT_BEFORE_TIMEOUT.
+ * The figures start empty on boot.
+ */
+@Service
+public class LiveKpiService {
+
+    public static final int[] WINDOW_MINUTES = {5, 15, 60};
+
+    private static final int SLICES = 60; // must cover the longest window
+    private static final int MAX_SECONDS = SimulationRun.WAIT_HISTOGRAM_SECONDS;
+
+    @Data
+    public static class WindowKpis {
+        private int windowMinutes;
+        private int arrivals;
+        private int started;
+        private int completed;
+        private int cancelled;
+        private double throughputPerMinute; // completions
+        private double meanWaitMinutes;
+        private double p50WaitMinutes;
+        private double p95WaitMinutes;
+        private double p99WaitMinutes;
+        private double meanServiceMinutes;
+        private double p95ServiceMinutes;
+        private double complaintRate; // of started orders
+        private double timeoutRate;   // of started orders
+        private Map<Long, Integer> completedByBarista;
+    }
+
+    @Data
+    public static class LiveKpis {
+        private final LocalDateTime asOf;
+        private final List<WindowKpis> windows;
+    }
+
+    // Counts of one minute, or running totals of one window
+    private static final class Tally {
+        int arrivals, started, completed, cancelled, complaints, timeouts;
+        long waitSeconds, serviceSeconds;
+        final int[] wait = new int[MAX_SECONDS + 1];
+        final int[] service = new int[MAX_SECONDS + 1];
+        final Map<Long, Integer> completedByBarista = new HashMap<>();
+
+        void subtract(Tally slice) {
+            arrivals -= slice.arrivals;
+            started -= slice.started;
+            completed -= slice.completed;
+            cancelled -= slice.cancelled;
+            complaints -= slice.complaints;
+            timeouts -= slice.timeouts;
+            waitSeconds -= slice.waitSeconds;
+            serviceSeconds -= slice.serviceSeconds;
+            for (int s = 0; s <= MAX_SECONDS; s++) {
+                wait[s] -= slice.wait[s];
+                service[s] -= slice.service[s];
+            }
+            slice.completedByBarista.forEach((barista, n) -> {
+                if (completedByBarista.merge(barista, -n, Integer::sum) == 0) completedByBarista.remove(barista);
+            });
+        }
+
+        void clear() {
+            arrivals = started = completed = cancelled = complaints = timeouts = 0;
+            waitSeconds = serviceSeconds = 0;
+            Arrays.fill(wait, 0);
+            Arrays.fill(service, 0);
+            completedByBarista.clear();
+        }
+    }
+
+    private final Clock clock;
+    private final Tally[] slices = new Tally[SLICES];
+    private final long[] sliceMinute = new long[SLICES];
+    private final Tally[] windows = new Tally[WINDOW_MINUTES.length];
+    private long currentMinute = Long.MIN_VALUE;
+
+    public LiveKpiService(Clock clock) {
+        this.clock = clock;
+        for (int i = 0; i < SLICES; i++) {
+            slices[i] = new Tally();
+            sliceMinute[i] = Long.MIN_VALUE;
+        }
+        for (int w = 0; w < windows.length; w++) {
+            windows[w] = new Tally();
+        }
+    }
+
+    public synchronized void orderArrived() {
+        advance();
+        slices[slot(currentMinute)].arrivals++;
+        for (Tally window : windows) window.arrivals++;
+    }
+
+    public synchronized void orderStarted(Order order) {
+        if (order.getArrivalTime() == null || order.getStartTime() == null) return;
+        advance();
+        long waited = Math.max(0, Duration.between(order.getArrivalTime(), order.getStartTime()).getSeconds());
+        int bucket = (int) Math.min(waited, MAX_SECONDS);
+        boolean complaint = waited > PriorityService.URGENCY_THRESHOLD * 60L;
+        boolean timeout = waited > PriorityService.MAX_WAIT_BEFORE_TIMEOUT * 60L;
+        for (Tally tally : touched()) {
+            tally.started++;
+            tally.waitSeconds += waited;
+            tally.wait[bucket]++;
+            if (complaint) tally.complaints++;
+            if (timeout) tally.timeouts++;
+        }
+    }
+
+    public synchronized void orderCompleted(Order order) {
+        if (order.getStartTime() == null || order.getEndTime() == null) return;
+        advance();
+        long served = Math.max(0, Duration.between(order.getStartTime(), order.getEndTime()).getSeconds());
+        int bucket = (int) Math.min(served, MAX_SECONDS);
+        for (Tally tally : touched()) {
+            tally.completed++;
+            tally.serviceSeconds += served;
+            tally.service[bucket]++;
+            if (order.getBaristaId() != null) tally.completedByBarista.merge(order.getBaristaId(), 1, Integer::sum);
+        }
+    }
+
+    public synchronized void orderCancelled() {
+        advance();
+        slices[slot(currentMinute)].cancelled++;
+        for (Tally window : windows) window.cancelled++;
+    }
+
+    public synchronized LiveKpis snapshot() {
+        advance();
+        List<WindowKpis> result = new ArrayList<>(windows.length);
+        for (int w = 0; w < windows.length; w++) {
+            result.add(toKpis(WINDOW_MINUTES[w], windows[w]));
+        }
+        return new LiveKpis(LocalDateTime.now(clock), result);
+    }
+
+    private Tally[] touched() {
+        Tally[] all = new Tally[windows.length + 1];
+        all[0] = slices[slot(currentMinute)];
+        System.arraycopy(windows, 0, all, 1, windows.length);
+        return all;
+    }
+
+    // Rolls the windows forward to the current minute, one minute at a time (at most an hour's worth)
+    private void advance() {
+        long now = Math.floorDiv(clock.millis(), 60_000L);
+        if (now <= currentMinute) return;
+        if (currentMinute == Long.MIN_VALUE || now - currentMinute > SLICES) {
+            for (Tally window : windows) window.clear();
+            for (int i = 0; i < SLICES; i++) {
+                slices[i].clear();
+                sliceMinute[i] = Long.MIN_VALUE;
+            }
+            currentMinute = now;
+            sliceMinute[slot(now)] = now;
+            return;
+        }
+        while (currentMinute < now) {
+            currentMinute++;
+            for (int w = 0; w < windows.length; w++) {
+                long leaving = currentMinute - WINDOW_MINUTES[w];
+                if (sliceMinute[slot(leaving)] == leaving) windows[w].subtract(slices[slot(leaving)]);
+            }
+            int slot = slot(currentMinute);
+            slices[slot].clear(); // held currentMinute - SLICES, which has just left the longest window
+            sliceMinute[slot] = currentMinute;
+        }
+    }
+
+    private static int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) SLICES);
+    }
+
+    private static WindowKpis toKpis(int minutes, Tally tally) {
+        WindowKpis kpis = new WindowKpis();
+        kpis.setWindowMinutes(minutes);
+        kpis.setArrivals(tally.arrivals);
+        kpis.setStarted(tally.started);
+        kpis.setCompleted(tally.completed);
+        kpis.setCancelled(tally.cancelled);
+        kpis.setThroughputPerMinute((double) tally.completed / minutes);
+        kpis.setMeanWaitMinutes(tally.started > 0 ? tally.waitSeconds / 60.0 / tally.started : 0);
+        kpis.setP50WaitMinutes(percentileMinutes(tally.wait, tally.started, 0.50));
+        kpis.setP95WaitMinutes(percentileMinutes(tally.wait, tally.started, 0.95));
+        kpis.setP99WaitMinutes(percentileMinutes(tally.wait, tally.started, 0.99));
+        kpis.setMeanServiceMinutes(tally.completed > 0 ? tally.serviceSeconds / 60.0 / tally.completed : 0);
+        kpis.setP95ServiceMinutes(percentileMinutes(tally.service, tally.completed, 0.95));
+        kpis.setComplaintRate(tally.started > 0 ? (double) tally.complaints / tally.started : 0);
+        kpis.setTimeoutRate(tally.started > 0 ? (double) tally.timeouts / tally.started : 0);
+        kpis.setCompletedByBarista(new HashMap<>(tally.completedByBarista));
+        return kpis;
+    }
+
+    // Same rank rule as the simulation summary
+    private static double percentileMinutes(int[] histogram, int count, double q) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(q * count);
+        long seen = 0;
+        for (int s = 0; s < histogram.length; s++) {
+            seen += histogram[s];
+            if (seen >= rank) return s / 60.0;
+        }
+        return MAX_SECONDS / 60.0;
+    }
+}
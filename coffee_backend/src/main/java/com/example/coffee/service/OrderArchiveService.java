@@ -0,0 +1,80 @@
+package com.example.coffee.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves finished orders out of the hot orders table into the append-only order_history table.
+ *
+ * orders only keeps PENDING / PROCESSING rows plus the last few minutes of COMPLETED / CANCELLED
+ * ones, so everything that reads it (startup recovery, /orders, /orders/query) stays proportional
+ * to the active set. Reporting reads order_history (/orders/history).
+ *
+ * Each batch is copied and deleted in one transaction, so an order is always in exactly one of the two tables.
+ */
+@Slf4j
+@Service
+public class OrderArchiveService {
+
+    static final String SELECT_FINISHED =
+            "SELECT id FROM orders WHERE status IN ('COMPLETED', 'CANCELLED') AND end_time < :cutoff ORDER BY id LIMIT :limit";
+    static final String COPY_TO_HISTORY =
+            "INSERT INTO order_history (id, customer_name, drink_type, prep_time_minutes, price, arrival_time, start_time,"
+            + " end_time, status, priority_score, times_skipped, barista_id, station_id, customer_id, loyalty_member)"
+            + " SELECT o.id, o.customer_name, o.drink_type, o.prep_time_minutes, o.price, o.arrival_time, o.start_time,"
+            + " o.end_time, o.status, o.priority_score, o.times_skipped, o.barista_id, o.station_id, o.customer_id,"
+            + " COALESCE(c.is_loyalty_member, FALSE)"
+            + " FROM orders o LEFT JOIN customers c ON c.id = o.customer_id WHERE o.id IN (:ids)";
+    static final String DELETE_FROM_ORDERS =
+            "DELETE FROM orders WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final int minAgeMinutes;
+    private final int batchSize;
+
+    public OrderArchiveService(NamedParameterJdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               Clock clock,
+                               @Value("${coffee.archive.min-age-minutes:10}") int minAgeMinutes,
+                               @Value("${coffee.archive.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.clock = clock;
+        this.minAgeMinutes = minAgeMinutes;
+        this.batchSize = batchSize;
+    }
+
+    /** Archives every order that finished more than min-age-minutes ago. Returns how many were moved. */
+    @Scheduled(fixedDelayString = "${coffee.archive.interval-ms:60000}")
+    public int archiveFinishedOrders() {
+        LocalDateTime cutoff = LocalDateTime.now(clock).minusMinutes(minAgeMinutes);
+        int moved = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(SELECT_FINISHED,
+                    Map.of("cutoff", java.sql.Timestamp.valueOf(cutoff), "limit", batchSize), Long.class);
+            if (ids.isEmpty()) break;
+
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(COPY_TO_HISTORY, Map.of("ids", ids));
+                jdbcTemplate.update(DELETE_FROM_ORDERS, Map.of("ids", ids));
+            });
+            moved += ids.size();
+            if (ids.size() < batchSize) break;
+        }
+        if (moved > 0) {
+            log.info("Archived {} finished orders to order_history", moved);
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.coffee.service;
+
+import com.example.coffee.dispatch.IntakeRing;
+import com.example.coffee.model.Order;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * High-throughput order intake: POST /orders/intake only stamps the arrival time and appends the
+ * order to a bounded lock-free ring, then answers 202 with a ticket. A single drainer thread takes
+ * whatever has accumulated (up to coffee.intake.batch-size) and creates it through
+ * {@link OrderService#createOrders} in one transaction, so request threads never wait on the
+ * priority calculation or an INSERT. When the ring is full the POST is rejected with 429.
+ *
+ * The created order is published on the live board with its intakeTicket, and can be looked up
+ * by ticket for a while (GET /orders/intake/{ticket}). A batch that keeps failing is retried one
+ * order at a time, so one bad order doesn't take the others down with it; the tickets of orders that
+ * still can't be created are remembered as failed for the same while.
+ *
+ * The drainer parks while the ring is empty and submit() wakes it, so an idle service doesn't spin.
+ */
+@Slf4j
+@Service
+public class OrderIntakeService {
+
+    private static final int MAX_ATTEMPTS = 3;
+    // Only a safety net: submit() unparks the drainer as soon as there is work
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Data
+    public static class IntakeAck {
+        private final String ticket;
+        private final int queued; // orders ahead of this one, including it
+    }
+
+    private final OrderService orderService;
+    private final Clock clock;
+    private final IntakeRing<Order> ring;
+    private final int batchSize;
+    private final Cache<String, Order> created = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+    private final Cache<String, Boolean> failed = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+    private volatile boolean running;
+    private volatile boolean idle;
+    private volatile Thread drainer;
+
+    public OrderIntakeService(OrderService orderService, Clock clock,
+                              @Value("${coffee.intake.capacity:4096}") int capacity,
+                              @Value("${coffee.intake.batch-size:256}") int batchSize) {
+        this.orderService = orderService;
+        this.clock = clock;
+        this.ring = new IntakeRing<>(capacity);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Any request thread. Empty when the ring is full and the client should back off; throws
+     * IllegalArgumentException for an unknown station, before the order takes a ring slot.
+     */
+    public Optional<IntakeAck> submit(Order order) {
+        orderService.checkStation(order);
+        order.setId(null);
+        order.setVersion(0);
+        order.setArrivalTime(LocalDateTime.now(clock));
+        order.setIntakeTicket(UUID.randomUUID().toString());
+        if (!ring.offer(order)) {
+            return Optional.empty();
+        }
+        if (idle) LockSupport.unpark(drainer);
+        return Optional.of(new IntakeAck(order.getIntakeTicket(), ring.size()));
+    }
+
+    /** The created order, once the drainer got to it (and for 10 minutes after). */
+    public Optional<Order> findByTicket(String ticket) {
+        return Optional.ofNullable(created.getIfPresent(ticket));
+    }
+
+    /** True when the order was accepted but couldn't be created (for 10 minutes after). */
+    public boolean hasFailed(String ticket) {
+        return failed.getIfPresent(ticket) != null;
+    }
+
+    public int queued() {
+        return ring.size();
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (drainer != null) return;
+        running = true;
+        drainer = new Thread(this::run, "order-intake");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    // Stops taking new work, then creates whatever was still accepted
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread worker;
+        synchronized (this) {
+            worker = drainer;
+            drainer = null;
+            running = false;
+        }
+        if (worker == null) return;
+        LockSupport.unpark(worker);
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+        if (worker.isAlive()) return; // still stuck on a batch; the ring has a single consumer, so don't race it
+        List<Order> batch = new ArrayList<>();
+        while (ring.drain(batch::add, batchSize) > 0) {
+            if (!createBatch(batch)) createEach(batch);
+            batch.clear();
+        }
+    }
+
+    private void run() {
+        List<Order> batch = new ArrayList<>(batchSize);
+        int attempts = 0;
+        while (running) {
+            if (batch.isEmpty() && ring.drain(batch::add, batchSize) == 0) {
+                idle = true;
+                // Checked again after announcing it, so an offer racing with this either is seen or unparks us
+                if (ring.size() == 0) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                idle = false;
+                continue;
+            }
+            if (createBatch(batch)) {
+                batch.clear();
+                attempts = 0;
+            } else if (++attempts >= MAX_ATTEMPTS) {
+                createEach(batch);
+                batch.clear();
+                attempts = 0;
+            } else {
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1)); // retry the same batch after a pause
+            }
+        }
+    }
+
+    // Last resort for a batch that keeps failing: only the orders that fail on their own are lost
+    private void createEach(List<Order> batch) {
+        int failures = 0;
+        for (Order order : batch) {
+            if (!createBatch(List.of(order))) {
+                failed.put(order.getIntakeTicket(), Boolean.TRUE);
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            log.error("Dropped {} of {} accepted orders that could not be created", failures, batch.size());
+        }
+    }
+
+    private boolean createBatch(List<Order> batch) {
+        for (Order order : batch) {
+            // A rolled-back attempt may have handed out ids already; they must be inserted again, not merged
+            order.setId(null);
+            order.setVersion(0);
+        }
+        try {
+            for (Order order : orderService.createOrders(batch)) {
+                created.put(order.getIntakeTicket(), order);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Creating {} accepted orders failed", batch.size(), e);
+            return false;
+        }
+    }
+}
@@ -1,36 +1,198 @@
 package com.example.coffee.service;
 
+import com.example.coffee.dispatch.StationShard;
+import com.example.coffee.dispatch.StationShards;
 import com.example.coffee.model.Order;
 import com.example.coffee.model.OrderStatus;
+import com.example.coffee.model.OrderSummary;
+import com.example.coffee.repo.CheckpointLog;
+import com.example.coffee.repo.OrderHistoryRepository;
+import com.example.coffee.repo.OrderJournal;
+import com.example.coffee.repo.OrderQueryRepository;
 import com.example.coffee.repo.OrderRepository;
+import com.example.coffee.repo.WriteBehindBuffer;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
 
+    public static final int MAX_PAGE_SIZE = 500;
+
+    @Data
+    public static class OrderPage {
+        private final List<OrderSummary> items;
+        private final String nextCursor; // null on the last page
+    }
+
     private final OrderRepository orderRepository;
+    private final OrderHistoryRepository orderHistoryRepository;
+    private final CustomerService customerService;
     private final PriorityService priorityService;
+    private final StationShards stations;
+    private final WriteBehindBuffer writeBehind;
+    private final CheckpointLog checkpointLog;
+    private final OrderJournal journal;
+    private final LiveBoardService liveBoard;
+    private final LiveKpiService kpis;
     private final Clock clock;
 
     public Order createOrder(Order order) {
+        checkStation(order);
         order.setArrivalTime(LocalDateTime.now(clock));
+        LocalDateTime nextScoreChange = prepare(order);
+        Order saved = orderRepository.save(order);
+        enqueue(saved, nextScoreChange);
+        return saved;
+    }
+
+    /**
+     * Creates orders taken in by the intake ring, in one transaction. Their arrival time was set when
+     * they were accepted, so time spent waiting in the ring counts as waiting time.
+     */
+    public List<Order> createOrders(List<Order> orders) {
+        List<LocalDateTime> nextScoreChanges = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            nextScoreChanges.add(prepare(order));
+        }
+        List<Order> saved = orderRepository.saveAll(orders);
+        for (int i = 0; i < saved.size(); i++) {
+            enqueue(saved.get(i), nextScoreChanges.get(i));
+        }
+        return saved;
+    }
+
+    /** Throws IllegalArgumentException when the order is for a station this backend doesn't have. */
+    public void checkStation(Order order) {
+        if (stations.get(order.getStationId()).isEmpty()) {
+            throw new IllegalArgumentException("Unknown station " + order.getStationId());
+        }
+    }
+
+    // Scores the order once, so the inserted row already has its score; returns when that score goes stale
+    private LocalDateTime prepare(Order order) {
+        // The POS only sends the customer id; resolve it so the queued copy knows the loyalty flag
+        if (order.getCustomer() != null && order.getCustomer().getId() != null) {
+            customerService.findById(order.getCustomer().getId()).ifPresent(order::setCustomer);
+        }
         order.setStatus(OrderStatus.PENDING);
         order.setPriorityScore(priorityService.calculatePriority(order));
-        return orderRepository.save(order);
+        return priorityService.nextScoreChange(order);
+    }
+
+    private void enqueue(Order saved, LocalDateTime nextScoreChange) {
+        // The station was checked when the order came in, and stations are never removed
+        StationShard station = stations.get(saved.getStationId()).orElseThrow();
+        checkpointLog.orderCreated(saved, () -> station.getQueue().add(saved, nextScoreChange));
+        journal.record(OrderJournal.EventType.CREATED, saved);
+        liveBoard.orderChanged(saved);
+        kpis.orderArrived();
+    }
+
+    /**
+     * Cancels an order that is still waiting. Orders already being made can't be cancelled.
+     * Returns empty if the order doesn't exist or isn't PENDING anymore.
+     */
+    public Optional<Order> cancelOrder(Long id) {
+        Order order = null;
+        for (StationShard station : stations.all()) {
+            order = station.getQueue().remove(id);
+            if (order != null) break;
+        }
+        if (order == null) {
+            return Optional.empty();
+        }
+        order.setStatus(OrderStatus.CANCELLED);
+        order.setEndTime(LocalDateTime.now(clock));
+        writeBehind.orderChanged(order);
+        journal.record(OrderJournal.EventType.CANCELLED, order);
+        liveBoard.orderChanged(order);
+        kpis.orderCancelled();
+        return Optional.of(order);
     }
 
     public List<Order> getAllOrders() {
         return orderRepository.findAll();
     }
     
+    /**
+     * One page of live order summaries, newest first. Pass the previous page's nextCursor to continue.
+     * Throws IllegalArgumentException for a cursor that wasn't produced by this method.
+     */
+    public OrderPage queryOrders(List<OrderStatus> statuses, LocalDateTime from, LocalDateTime to,
+                                 Long baristaId, String cursor, int size) {
+        return page(statuses, from, to, baristaId, cursor, size, orderRepository::findSummaries);
+    }
+
+    /** Same as {@link #queryOrders} over archived (finished) orders. */
+    public OrderPage queryHistory(List<OrderStatus> statuses, LocalDateTime from, LocalDateTime to,
+                                  Long baristaId, String cursor, int size) {
+        return page(statuses, from, to, baristaId, cursor, size, orderHistoryRepository::findHistorySummaries);
+    }
+
+    private OrderPage page(List<OrderStatus> statuses, LocalDateTime from, LocalDateTime to, Long baristaId,
+                           String cursor, int size,
+                           Function<OrderQueryRepository.OrderQuery, List<OrderSummary>> finder) {
+        OrderQueryRepository.OrderQuery query = new OrderQueryRepository.OrderQuery();
+        query.setStatuses(statuses);
+        query.setArrivedFrom(from);
+        query.setArrivedBefore(to);
+        query.setBaristaId(baristaId);
+        if (cursor != null && !cursor.isEmpty()) {
+            decodeCursor(cursor, query);
+        }
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        query.setLimit(limit + 1); // one extra row tells us whether there is a next page
+
+        List<OrderSummary> rows = finder.apply(query);
+        if (rows.size() <= limit) {
+            return new OrderPage(rows, null);
+        }
+        List<OrderSummary> page = rows.subList(0, limit);
+        OrderSummary last = page.get(limit - 1);
+        return new OrderPage(page, encodeCursor(last.getArrivalTime(), last.getId()));
+    }
+
+    // Opaque to clients: base64url of "arrivalTime|id" of the last row served
+    static String encodeCursor(LocalDateTime arrivalTime, Long id) {
+        String key = arrivalTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void decodeCursor(String cursor, OrderQueryRepository.OrderQuery query) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = key.indexOf('|');
+            query.setAfterArrival(LocalDateTime.parse(key.substring(0, sep)));
+            query.setAfterId(Long.parseLong(key.substring(sep + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
     public List<Order> getPendingOrders() {
-        return orderRepository.findByStatus(OrderStatus.PENDING);
+        List<Order> pending = new ArrayList<>();
+        for (StationShard station : stations.all()) {
+            pending.addAll(station.getQueue().snapshot());
+        }
+        return pending;
+    }
+
+    // Highest priority first, for one station; empty if there is no such station
+    public Optional<List<Order>> getPendingOrders(Long stationId) {
+        return stations.get(stationId).map(station -> station.getQueue().snapshot());
     }
     
     public Order save(Order order) {
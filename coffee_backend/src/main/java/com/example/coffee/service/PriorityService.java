@@ -1,64 +1,47 @@
 package com.example.coffee.service;
 
+import com.example.coffee.dispatch.OrderScorer;
+import com.example.coffee.dispatch.ScoringStrategy;
 import com.example.coffee.model.Order;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.time.Clock;
-import java.time.Duration;
 import java.time.LocalDateTime;
 
 @Service
 @RequiredArgsConstructor
-public class PriorityService {
+public class PriorityService implements OrderScorer {
 
     private final Clock clock; // Injected
 
-    // Weights
-    private static final double WEIGHT_WAIT_TIME = 0.40;
-    private static final double WEIGHT_COMPLEXITY = 0.25;
-    private static final double WEIGHT_LOYALTY = 0.10;
-    private static final double WEIGHT_URGENCY = 0.25;
+    // Outcome rules (timeout / complaint), independent of the scoring weights
+    public static final int MAX_WAIT_BEFORE_TIMEOUT = 10; // minutes
+    public static final int URGENCY_THRESHOLD = 8; // minutes
 
-    private static final int MAX_WAIT_BEFORE_TIMEOUT = 10; // minutes
-    private static final int URGENCY_THRESHOLD = 8; // minutes
+    // Swapped whole by PUT /scoring; every score reads one consistent parameter set
+    private volatile ScoringStrategy strategy = ScoringStrategy.DEFAULT;
 
+    public ScoringStrategy getStrategy() {
+        return strategy;
+    }
 
-    public double calculatePriority(Order order) {
-        long waitTimeMinutes = order.getWaitTimeMinutes(clock);
-        
-        // 1. Wait Time Score (Normalized: 10 mins = 100)
-        double waitScore = Math.min((double) waitTimeMinutes / MAX_WAIT_BEFORE_TIMEOUT * 100, 100);
-
-        // 2. Complexity Score (Shorter prep time = Higher priority for throughput)
-        // Max prep time is ~6 min. Normalize: (6 - prepTime) / 6 * 100
-        // If prepTime is 1, score should be high.
-        // Let's assume max possible prep time is 10 for safety
-        double complexityScore = Math.max(0, (10.0 - order.getPrepTimeMinutes()) / 10.0 * 100);
-
-        // 3. Loyalty Score
-        double loyaltyScore = order.isLoyaltyMember() ? 100 : 0;
-
-        // 4. Urgency Score
-        // If wait time > 8 mins, this kicks in hard to avoid timeout
-        double urgencyScore = 0;
-        if (waitTimeMinutes >= URGENCY_THRESHOLD) {
-             // Linear ramp up from 8 to 10 mins
-             urgencyScore = 100;
-        } else if (waitTimeMinutes > 5) {
-            urgencyScore = (waitTimeMinutes - 5) * 20; // 5->0, 6->20, 7->40, 8->60
-        }
+    public void setStrategy(ScoringStrategy strategy) {
+        this.strategy = strategy;
+    }
 
-        double totalScore = (waitScore * WEIGHT_WAIT_TIME) +
-                            (complexityScore * WEIGHT_COMPLEXITY) +
-                            (loyaltyScore * WEIGHT_LOYALTY) +
-                            (urgencyScore * WEIGHT_URGENCY);
+    @Override
+    public double calculatePriority(Order order) {
+        return strategy.score(order.getWaitTimeMinutes(clock), order.getPrepTimeMinutes(), order.isLoyaltyMember());
+    }
 
-        // Emergency Handling: If wait time > 8 min, boost significantly
-        if (waitTimeMinutes > 8) {
-            totalScore += 50;
-        }
-        
-        return totalScore;
+    // The score only moves when the whole-minute wait ticks over, so the next change is the next
+    // minute boundary after arrival - until the score saturates.
+    @Override
+    public LocalDateTime nextScoreChange(Order order) {
+        if (order.getArrivalTime() == null) return null;
+        long waitTimeMinutes = Math.max(0, order.getWaitTimeMinutes(clock));
+        if (waitTimeMinutes >= strategy.getSaturationMinutes()) return null;
+        return order.getArrivalTime().plusMinutes(waitTimeMinutes + 1);
     }
 }
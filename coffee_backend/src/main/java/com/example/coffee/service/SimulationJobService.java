@@ -0,0 +1,397 @@
+package com.example.coffee.service;
+
+import com.example.coffee.dispatch.AssignmentMode;
+import com.example.coffee.simulation.TraceArrivalSource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs simulation sweeps in the background so request threads never wait on them.
+ *
+ * Jobs go through a small bounded executor (extra submissions are rejected, not queued forever),
+ * and their cases run on a dedicated fork/join pool, so a big sweep can't take threads from order taking.
+ * Per-case reports are streamed to SSE subscribers as they complete; the sends happen on a separate
+ * sender thread, so a slow subscriber never holds up a sweep. Staffing plans take the same executor and pool.
+ */
+@Slf4j
+@Service
+public class SimulationJobService {
+
+    public enum JobStatus { QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private static final int MAX_RETAINED_JOBS = 50;
+    // Reports kept per job for late subscribers, and queued per job for a sender that has fallen behind
+    static final int RECENT_REPORTS = 256;
+
+    private final SimulationService simulationService;
+    private final StaffingService staffingService;
+    private final ThreadPoolExecutor jobExecutor;
+    private final ForkJoinPool simulationPool;
+    private final ExecutorService sender;
+    private final Map<String, SimulationJob> jobs = new LinkedHashMap<>();
+
+    public SimulationJobService(SimulationService simulationService,
+                                StaffingService staffingService,
+                                @Value("${coffee.simulation.jobs.max-concurrent:2}") int maxConcurrent,
+                                @Value("${coffee.simulation.jobs.queue-capacity:8}") int queueCapacity,
+                                @Value("${coffee.simulation.jobs.parallelism:0}") int parallelism,
+                                Environment environment) {
+        this.simulationService = simulationService;
+        this.staffingService = staffingService;
+        AtomicInteger threadCount = new AtomicInteger();
+        // Job threads mostly wait on the simulation pool, so they can be virtual; the pool itself is CPU-bound and stays as is
+        ThreadFactory jobThreads = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("simulation-job-").getVirtualThreadFactory()
+                : r -> {
+                    Thread t = new Thread(r, "simulation-job-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                };
+        this.jobExecutor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), jobThreads, new ThreadPoolExecutor.AbortPolicy());
+        // Leave a core for the web and dispatch threads unless told otherwise
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.simulationPool = new ForkJoinPool(parallelism > 0 ? parallelism : Math.max(1, cores - 1));
+        // One thread keeps each subscriber's events in order
+        this.sender = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "simulation-sse");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Queues a sweep. Throws RejectedExecutionException when the job queue is full. */
+    public SimulationJob submit(int scenarios, long seed, AssignmentMode mode) {
+        SimulationJob job = new SimulationJob(UUID.randomUUID().toString(), scenarios, seed, mode, sender);
+        synchronized (jobs) {
+            evictFinishedJobs();
+            jobs.put(job.getId(), job);
+        }
+        try {
+            job.future = jobExecutor.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                jobs.remove(job.getId());
+            }
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * A sweep answered on the request, without job tracking: it still takes a job slot and runs on the
+     * simulation pool. Throws RejectedExecutionException when the job queue is full.
+     */
+    public CompletableFuture<SimulationService.SimulationSummary> runScenarios(int scenarios, long seed, AssignmentMode mode) {
+        return CompletableFuture.supplyAsync(() -> simulationService.runScenarios(scenarios, seed, simulationPool, mode), jobExecutor);
+    }
+
+    /** Replays the order journal on the job executor. Throws RejectedExecutionException when the job queue is full. */
+    public CompletableFuture<SimulationService.SimulationReport> replayJournal(LocalDateTime from, LocalDateTime to,
+                                                                               int baristas, AssignmentMode mode) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return simulationService.replayJournal(from, to, baristas, mode);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, jobExecutor);
+    }
+
+    /**
+     * Runs one uploaded trace on the job executor, reading it as the run goes, and closes it afterwards.
+     * The future fails with IllegalArgumentException for a line of the trace that can't be read.
+     * Throws RejectedExecutionException when the job queue is full.
+     */
+    public CompletableFuture<SimulationService.SimulationReport> runTrace(TraceArrivalSource trace, int baristas,
+                                                                          AssignmentMode mode) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (trace) {
+                return simulationService.runTrace(trace, baristas, mode);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, jobExecutor);
+    }
+
+    /**
+     * Plans staffing on the job executor and the simulation pool. Throws IllegalArgumentException for a
+     * request that can't be planned, and RejectedExecutionException when the job queue is full.
+     */
+    public CompletableFuture<StaffingService.StaffingPlan> planStaffing(StaffingService.StaffingRequest request) {
+        StaffingService.validate(request);
+        return CompletableFuture.supplyAsync(() -> staffingService.plan(request, simulationPool), jobExecutor);
+    }
+
+    public Optional<SimulationJob> getJob(String id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    public boolean cancel(String id) {
+        SimulationJob job = getJob(id).orElse(null);
+        if (job == null) return false;
+        job.cancelled = true;
+        if (job.future != null && job.future.cancel(false)) {
+            // Never started: finish it here since run() won't
+            job.finish(JobStatus.CANCELLED, null);
+        }
+        return true;
+    }
+
+    /** Streams the job: the most recent reports so far, then new ones as they finish, then the summary. */
+    public SseEmitter subscribe(SimulationJob job) {
+        SseEmitter emitter = new SseEmitter(0L); // no timeout, the job decides when the stream ends
+        job.subscribe(emitter);
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        simulationPool.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    private void run(SimulationJob job) {
+        if (job.cancelled) {
+            job.finish(JobStatus.CANCELLED, null);
+            return;
+        }
+        job.status = JobStatus.RUNNING;
+        try {
+            SimulationService.SimulationSummary summary = simulationService.runScenarios(
+                    job.getScenarios(), job.getSeed(), simulationPool, job.getMode(), job::publish, () -> job.cancelled);
+            job.finish(job.cancelled ? JobStatus.CANCELLED : JobStatus.COMPLETED, summary);
+        } catch (RuntimeException e) {
+            log.error("Simulation job {} failed", job.getId(), e);
+            job.finish(JobStatus.FAILED, null);
+        }
+    }
+
+    private void evictFinishedJobs() {
+        Iterator<SimulationJob> it = jobs.values().iterator();
+        while (jobs.size() >= MAX_RETAINED_JOBS && it.hasNext()) {
+            if (it.next().isFinished()) it.remove();
+        }
+    }
+
+    public static class SimulationJob {
+        @Getter private final String id;
+        @Getter private final int scenarios;
+        @Getter private final long seed;
+        @Getter private final AssignmentMode mode;
+        @Getter private volatile JobStatus status = JobStatus.QUEUED;
+        @Getter private volatile SimulationService.SimulationSummary summary;
+
+        // The last RECENT_REPORTS reports, replayed to late subscribers; the rest are only counted
+        private final ArrayDeque<SimulationService.SimulationReport> recent = new ArrayDeque<>();
+        // Reports not yet sent to the current subscribers; oldest dropped if the sender falls that far behind
+        private final ArrayDeque<SimulationService.SimulationReport> outbox = new ArrayDeque<>();
+        private final List<SseEmitter> subscribers = new ArrayList<>();
+        private final ExecutorService sender;
+        // Guards the fields above and is never held across a send
+        private final ReentrantLock lock = new ReentrantLock();
+        private int completed;
+        private boolean flushScheduled;
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+
+        SimulationJob(String id, int scenarios, long seed, AssignmentMode mode, ExecutorService sender) {
+            this.id = id;
+            this.scenarios = scenarios;
+            this.seed = seed;
+            this.mode = mode;
+            this.sender = sender;
+        }
+
+        public int getCompletedScenarios() {
+            lock.lock();
+            try {
+                return completed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isFinished() {
+            return status != JobStatus.QUEUED && status != JobStatus.RUNNING;
+        }
+
+        // Runs on the fork/join workers: records the report and leaves the sending to the sender thread
+        void publish(SimulationService.SimulationReport report) {
+            // The summary aggregate has already consumed the histogram; don't keep 14KB per case around
+            report.setWaitHistogram(null);
+            boolean schedule;
+            lock.lock();
+            try {
+                completed++;
+                offer(recent, report);
+                if (subscribers.isEmpty()) return;
+                offer(outbox, report);
+                schedule = !flushScheduled;
+                flushScheduled = true;
+            } finally {
+                lock.unlock();
+            }
+            if (schedule) sendLater(this::flush);
+        }
+
+        void subscribe(SseEmitter emitter) {
+            sendLater(() -> attach(emitter));
+        }
+
+        void finish(JobStatus finalStatus, SimulationService.SimulationSummary finalSummary) {
+            lock.lock();
+            try {
+                summary = finalSummary;
+                status = finalStatus;
+            } finally {
+                lock.unlock();
+            }
+            sendLater(this::completeSubscribers);
+        }
+
+        // Everything below runs on the sender thread, one task at a time
+
+        private void attach(SseEmitter emitter) {
+            // Deliver what is already queued first, so the snapshot below and the outbox never overlap
+            flush();
+            List<SimulationService.SimulationReport> replay;
+            boolean finished;
+            lock.lock();
+            try {
+                replay = new ArrayList<>(recent);
+                finished = isFinished();
+                if (!finished) subscribers.add(emitter);
+            } finally {
+                lock.unlock();
+            }
+            for (SimulationService.SimulationReport report : replay) {
+                if (!send(emitter, "report", report)) {
+                    drop(List.of(emitter));
+                    return;
+                }
+            }
+            if (finished) complete(emitter);
+        }
+
+        private void flush() {
+            while (true) {
+                List<SimulationService.SimulationReport> batch;
+                List<SseEmitter> targets;
+                lock.lock();
+                try {
+                    if (outbox.isEmpty()) {
+                        flushScheduled = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(outbox);
+                    outbox.clear();
+                    targets = new ArrayList<>(subscribers);
+                } finally {
+                    lock.unlock();
+                }
+                List<SseEmitter> gone = new ArrayList<>();
+                for (SseEmitter emitter : targets) {
+                    for (SimulationService.SimulationReport report : batch) {
+                        if (!send(emitter, "report", report)) {
+                            gone.add(emitter);
+                            break;
+                        }
+                    }
+                }
+                drop(gone);
+            }
+        }
+
+        private void completeSubscribers() {
+            flush();
+            List<SseEmitter> targets;
+            lock.lock();
+            try {
+                targets = new ArrayList<>(subscribers);
+                subscribers.clear();
+                outbox.clear();
+            } finally {
+                lock.unlock();
+            }
+            for (SseEmitter emitter : targets) {
+                complete(emitter);
+            }
+        }
+
+        private void drop(List<SseEmitter> gone) {
+            if (gone.isEmpty()) return;
+            lock.lock();
+            try {
+                subscribers.removeAll(gone);
+                if (subscribers.isEmpty()) outbox.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void sendLater(Runnable task) {
+            try {
+                sender.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; subscribers are cut off with the server
+            }
+        }
+
+        private static void offer(ArrayDeque<SimulationService.SimulationReport> queue, SimulationService.SimulationReport report) {
+            if (queue.size() == RECENT_REPORTS) queue.removeFirst();
+            queue.addLast(report);
+        }
+
+        private void complete(SseEmitter emitter) {
+            if (send(emitter, "status", status) && (summary == null || send(emitter, "summary", summary))) {
+                emitter.complete();
+            }
+        }
+
+        private static boolean send(SseEmitter emitter, String name, Object data) {
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; drop it
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
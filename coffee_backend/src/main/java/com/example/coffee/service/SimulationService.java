@@ -1,16 +1,25 @@
 package com.example.coffee.service;
 
-import com.example.coffee.model.Barista;
-import com.example.coffee.model.Customer;
-import com.example.coffee.model.Order;
-import com.example.coffee.model.OrderStatus;
+import com.example.coffee.dispatch.AssignmentMode;
+import com.example.coffee.dispatch.ScoringStrategy;
+import com.example.coffee.repo.OrderJournal;
+import com.example.coffee.simulation.ArrivalSource;
+import com.example.coffee.simulation.SimulationRun;
+import com.example.coffee.simulation.TraceArrivalSource;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,6 +27,14 @@ import java.util.stream.Collectors;
 public class SimulationService {
 
     private final PriorityService priorityService;
+    private final OrderJournal journal;
+
+    private static final int BARISTAS = 3;
+
+    // Largest sweep accepted over HTTP: a sweep holds a random stream per scenario until it finishes
+    public static final int MAX_SCENARIOS = 100_000;
+    // Most baristas one simulated shop may have: a run sizes its per-barista arrays from this
+    public static final int MAX_BARISTAS = 100;
 
     @Data
     public static class SimulationReport {
@@ -26,236 +43,279 @@ public class SimulationService {
         private double averageWaitTimeMinutes;
         private Map<String, Integer> baristaWorkload; // Barista Name -> Orders Completed
         private int complaintsCount;
+        private int servedOrders;
+        @com.fasterxml.jackson.annotation.JsonIgnore
+        private int[] waitHistogram; // arrival -> completion, seconds -> count
+    }
+
+    // Aggregate over many scenarios. Every figure is derived from integer sums and histogram counts,
+    // so the result is identical regardless of how the scenarios were split across threads.
+    @Data
+    public static class SimulationSummary {
+        private int scenarios;
+        private long masterSeed;
+        private AssignmentMode mode;
+        private long totalOrders;
+        private long servedOrders;
+        private long complaintsCount;
+        private double complaintRate;
+        private double meanWaitMinutes;
+        private double p50WaitMinutes;
+        private double p95WaitMinutes;
+        private double p99WaitMinutes;
     }
 
     public List<SimulationReport> runSimulation() {
+        SplittableRandom master = new SplittableRandom();
+        ScoringStrategy scoring = priorityService.getStrategy();
         List<SimulationReport> reports = new ArrayList<>();
-        
         for (int i = 1; i <= 10; i++) {
-            reports.add(runTestCase(i));
+            reports.add(runTestCase(i, master.split(), AssignmentMode.BALANCED, scoring));
         }
-        
         return reports;
     }
 
-    private SimulationReport runTestCase(int caseId) {
-        // Setup 3 Baristas (In-memory)
-        List<Barista> baristas = new ArrayList<>();
-        for (int b = 1; b <= 3; b++) {
-            baristas.add(new Barista((long)b, "Barista " + b, null, 0, 0));
+    /**
+     * Runs {@code scenarios} test cases in parallel on {@code pool} (SimulationJobService's, when served over HTTP).
+     * Case i always gets the i-th stream split off {@code masterSeed}, so the same seed gives the same summary.
+     */
+    public SimulationSummary runScenarios(int scenarios, long masterSeed, ForkJoinPool pool) {
+        return runScenarios(scenarios, masterSeed, pool, AssignmentMode.BALANCED);
+    }
+
+    // Same scenarios as any other mode for the same seed, so modes can be compared case for case
+    public SimulationSummary runScenarios(int scenarios, long masterSeed, ForkJoinPool pool, AssignmentMode mode) {
+        return runScenarios(scenarios, masterSeed, pool, mode, report -> { }, () -> false);
+    }
+
+    /**
+     * Same as above, but hands every finished case to {@code onCase} as soon as it completes (in completion
+     * order, from worker threads) and stops starting new cases once {@code cancelled} returns true.
+     */
+    public SimulationSummary runScenarios(int scenarios, long masterSeed, ForkJoinPool pool, AssignmentMode mode,
+                                          Consumer<SimulationReport> onCase, BooleanSupplier cancelled) {
+        SplittableRandom master = new SplittableRandom(masterSeed);
+        SplittableRandom[] streams = new SplittableRandom[scenarios];
+        for (int i = 0; i < scenarios; i++) {
+            streams[i] = master.split(); // derived sequentially, so independent of scheduling
         }
+        // One scoring snapshot for the whole sweep, even if it is swapped meanwhile
+        ScoringStrategy scoring = priorityService.getStrategy();
+        ScenarioAggregate total = pool.invoke(new ScenarioTask(streams, 0, scenarios, mode, scoring, onCase, cancelled));
+        SimulationSummary summary = total.toSummary(scenarios, masterSeed);
+        summary.setMode(mode);
+        return summary;
+    }
 
+    private SimulationReport runTestCase(int caseId, SplittableRandom rand, AssignmentMode mode, ScoringStrategy scoring) {
         // Generate Random Orders (200-300)
-        Random rand = new Random();
         int numOrders = 200 + rand.nextInt(101); // 200 to 300
-        List<Order> orders = new ArrayList<>();
-        
-        
-        // Start at 7:00 AM today
-        LocalDateTime simStartTime = LocalDateTime.now().withHour(7).withMinute(0).withSecond(0).withNano(0);
-        
+        int[] prep = new int[numOrders];
+        boolean[] vip = new boolean[numOrders];
+        // (arrival second << 32 | generation index): one primitive sort gives a stable arrival order
+        long[] arrivals = new long[numOrders];
+
         for (int j = 0; j < numOrders; j++) {
-            Order o = new Order();
-            o.setId((long)j);
-            o.setDrinkType(getRandomDrink(rand));
-            o.setPrepTimeMinutes(getPrepTime(o.getDrinkType()));
-            o.setArrivalTime(simStartTime.plusSeconds(rand.nextInt(10800))); // Arrive within 3 hours (7am - 10am)
-            
-            // Mock Customer for Loyalty
-            boolean isVip = rand.nextDouble() > 0.8; // 20% mock VIP
-            if (isVip) {
-                Customer c = new Customer();
-                c.setLoyaltyMember(true);
-                o.setCustomer(c);
-            }
-            
-            o.setStatus(OrderStatus.PENDING);
-            orders.add(o);
+            prep[j] = TraceArrivalSource.prepMinutesFor(getRandomDrink(rand));
+            long arrival = rand.nextInt(10800); // Arrive within 3 hours (7am - 10am)
+            vip[j] = rand.nextDouble() > 0.8; // 20% mock VIP
+            arrivals[j] = (arrival << 32) | j;
         }
 
         // Sort by arrival time to simulate real flow
-        orders.sort(Comparator.comparing(Order::getArrivalTime));
-
-        // SIMULATION STATE
-        Map<Long, LocalDateTime> baristaFreeTime = new HashMap<>(); 
-        Map<Long, Integer> baristaMinutesWorked = new HashMap<>(); // Track workload (minutes)
-        Map<String, Integer> workloadCount = new HashMap<>(); // Track count for report
+        Arrays.sort(arrivals);
 
-        for (Barista b : baristas) {
-            baristaFreeTime.put(b.getId(), simStartTime);
-            baristaMinutesWorked.put(b.getId(), 0);
-            workloadCount.put(b.getName(), 0);
+        // Setup 3 Baristas (In-memory)
+        SimulationRun run = new SimulationRun(numOrders, BARISTAS, mode, scoring);
+        for (long packed : arrivals) {
+            int j = (int) packed;
+            run.addOrder(packed >>> 32, prep[j], vip[j]);
         }
+        run.execute();
+        return report(caseId, numOrders, run);
+    }
 
-        long totalWaitMinutes = 0;
-        int complaints = 0;
-        int processedSuccessfully = 0;
-        int orderIdx = 0;
-
-        // Use a List for the queue so we can search/filter for Workload Balancing
-        List<Order> activeQueue = new ArrayList<>();
-        
-        LocalDateTime currentTime = orders.get(0).getArrivalTime();
-        
-        // LOOP
-        while (orderIdx < numOrders || !activeQueue.isEmpty()) {
-            
-            // 1. Add arrived orders
-            while (orderIdx < numOrders && !orders.get(orderIdx).getArrivalTime().isAfter(currentTime)) {
-                activeQueue.add(orders.get(orderIdx));
-                orderIdx++;
-            }
+    /**
+     * Runs the orders that really arrived in [from, to), as recorded in the order journal, through the
+     * simulator with {@code baristas} baristas: last week's rush instead of a generated one.
+     */
+    public SimulationReport replayJournal(LocalDateTime from, LocalDateTime to, int baristas, AssignmentMode mode)
+            throws IOException {
+        return runTrace(new JournalArrivals(journal.reader(), from, to), baristas, mode);
+    }
 
-            // 2. RE-CALCULATE PRIORITIES (Every 30 seconds)
-            // Function: Wait(40%) + Complexity(25%) + Loyalty(10%) + Urgency(25%)
-            for (Order o : activeQueue) {
-                long waitMins = java.time.Duration.between(o.getArrivalTime(), currentTime).toMinutes();
-                
-                // Wait Score: 0-100 (cap at 10 mins)
-                double waitScore = Math.min(waitMins, 10) * 10.0;
-                
-                // Complexity Score: Short (1 min) -> High Score. Long (6 min) -> Low Score.
-                double complexityScore = ((6.0 - o.getPrepTimeMinutes()) / 5.0) * 100.0;
-                complexityScore = Math.max(0, complexityScore);
-                
-                // Loyalty
-                double loyaltyScore = o.isLoyaltyMember() ? 100.0 : 0.0;
-                
-                // Urgency (Approaching 8 min timeout)
-                double urgencyScore = 0.0;
-                if (waitMins >= 8) urgencyScore = 100.0;
-                else if (waitMins >= 6) urgencyScore = (waitMins - 6) * 50.0; 
-                
-                // Weighted Sum
-                double total = (waitScore * 0.40) + 
-                               (complexityScore * 0.25) + 
-                               (loyaltyScore * 0.10) + 
-                               (urgencyScore * 0.25);
-                               
-                // Emergency Boost (>8 min)
-                if (waitMins > 8) total += 50.0;
-                
-                o.setPriorityScore(total);
-            }
-            
-            // Sort Queue by Score Descending
-            activeQueue.sort((o1, o2) -> Double.compare(o2.getPriorityScore(), o1.getPriorityScore()));
-
-            // 3. CHECK TIMEOUT / ABANDONMENT
-            Iterator<Order> it = activeQueue.iterator();
-            while (it.hasNext()) {
-                Order o = it.next();
-                long w = java.time.Duration.between(o.getArrivalTime(), currentTime).toMinutes();
-                
-                // > 10 min hard timeout (Order Abandoned / Lost)
-                if (w > 10) {
-                    it.remove();
-                    complaints++; // Count as bad outcome
-                }
-            }
+    /**
+     * Streams a recorded trace through one simulated shop as fast as the event loop goes. Arrivals are
+     * read as the simulated clock reaches them and dropped once served, so the trace can be any length.
+     */
+    public SimulationReport runTrace(ArrivalSource arrivals, int baristas, AssignmentMode mode) {
+        SimulationRun run = new SimulationRun(0, baristas, mode, priorityService.getStrategy());
+        run.execute(arrivals);
+        return report(0, (int) run.getArrivalCount(), run);
+    }
+
+    // CREATED events in [from, to), in journal order; intake-ring orders can be a little out of arrival
+    // order there, which SimulationRun absorbs
+    private static final class JournalArrivals implements ArrivalSource {
+        private final OrderJournal.Reader reader;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private OrderJournal.Event event;
+
+        JournalArrivals(OrderJournal.Reader reader, LocalDateTime from, LocalDateTime to) {
+            this.reader = reader;
+            this.from = from;
+            this.to = to;
+        }
 
-            // 4. ASSIGN TO BARISTAS (Workload Balancing)
-            boolean anyoneBusy = false;
-            
-            // Calculate Avg Workload
-            double totalWork = 0;
-            for(long vid : baristaMinutesWorked.keySet()) totalWork += baristaMinutesWorked.get(vid);
-            double avgWork = totalWork / 3.0;
-            
-            for (Barista b : baristas) {
-                if (baristaFreeTime.get(b.getId()).isBefore(currentTime) || baristaFreeTime.get(b.getId()).isEqual(currentTime)) {
-                     if (!activeQueue.isEmpty()) {
-                         // Workload Balancing Strategy
-                         double myWork = baristaMinutesWorked.get(b.getId());
-                         double ratio = avgWork > 0 ? myWork / avgWork : 1.0;
-                         
-                         Order bestOrder = null;
-                         
-                         if (ratio > 1.2) {
-                             // Overloaded: Prefer Quick Orders (< 3 mins)
-                             for(Order cand : activeQueue) {
-                                 if (cand.getPrepTimeMinutes() < 3) {
-                                     bestOrder = cand;
-                                     break;
-                                 }
-                             }
-                         } else if (ratio < 0.8) {
-                             // Underutilized: Prefer Complex Orders (>= 4 mins)
-                             for(Order cand : activeQueue) {
-                                 if (cand.getPrepTimeMinutes() >= 4) {
-                                     bestOrder = cand;
-                                     break;
-                                 }
-                             }
-                         }
-                         
-                         // Fallback: Just take top priority
-                         if (bestOrder == null) bestOrder = activeQueue.get(0);
-                         
-                         // Assign
-                         activeQueue.remove(bestOrder);
-                         
-                         LocalDateTime start = currentTime;
-                         LocalDateTime end = start.plusMinutes(bestOrder.getPrepTimeMinutes());
-                         
-                         baristaFreeTime.put(b.getId(), end);
-                         workloadCount.put(b.getName(), workloadCount.get(b.getName()) + 1);
-                         baristaMinutesWorked.put(b.getId(), baristaMinutesWorked.get(b.getId()) + bestOrder.getPrepTimeMinutes());
-                         
-                         long totalTime = java.time.Duration.between(bestOrder.getArrivalTime(), end).toMinutes();
-                         totalWaitMinutes += totalTime;
-                         processedSuccessfully++;
-                         
-                         // If we took > 8 mins to serve, it's still a "Complaint" in our stats
-                         long waitOnly = java.time.Duration.between(bestOrder.getArrivalTime(), start).toMinutes();
-                         if (waitOnly > 8) complaints++; 
-                         
-                         anyoneBusy = true; 
-                     }
-                } else {
-                    anyoneBusy = true;
+        @Override
+        public boolean next() {
+            try {
+                for (event = reader.next(); event != null; event = reader.next()) {
+                    if (event.getType() == OrderJournal.EventType.CREATED
+                            && !event.getArrivalTime().isBefore(from) && event.getArrivalTime().isBefore(to)) {
+                        return true;
+                    }
                 }
-            }
-            
-            currentTime = currentTime.plusSeconds(30);
-            
-            // Break condition
-             if (activeQueue.isEmpty() && orderIdx >= numOrders && !anyoneBusy) {
-                 boolean allDone = true;
-                 for (Barista b : baristas) {
-                     if (baristaFreeTime.get(b.getId()).isAfter(currentTime)) {
-                         allDone = false;
-                         break;
-                     }
-                 }
-                 if (allDone) break;
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         }
 
+        @Override
+        public long arrivalSecond() {
+            return Duration.between(from, event.getArrivalTime()).getSeconds();
+        }
+
+        @Override
+        public int prepMinutes() {
+            return event.getPrepMinutes();
+        }
+
+        @Override
+        public boolean loyal() {
+            return event.isLoyaltyMember();
+        }
+    }
+
+    private SimulationReport report(int caseId, int numOrders, SimulationRun run) {
+        Map<String, Integer> workloadCount = new HashMap<>();
+        for (int b = 0; b < run.getBaristaCount(); b++) {
+            workloadCount.put("Barista " + (b + 1), run.getBaristaOrderCount(b));
+        }
+
         SimulationReport report = new SimulationReport();
         report.setTestCaseId(caseId);
         report.setTotalOrders(numOrders);
-        report.setAverageWaitTimeMinutes(processedSuccessfully > 0 ? (double)totalWaitMinutes / processedSuccessfully : 0);
+        report.setAverageWaitTimeMinutes(run.getServed() > 0 ? run.getTotalWaitSeconds() / 60.0 / run.getServed() : 0);
         report.setBaristaWorkload(workloadCount);
-        report.setComplaintsCount(complaints);
-        
+        report.setComplaintsCount(run.getComplaints());
+        report.setServedOrders(run.getServed());
+        report.setWaitHistogram(run.getWaitHistogram());
         return report;
     }
 
-    private String getRandomDrink(Random r) {
+    static String getRandomDrink(SplittableRandom r) {
         String[] drinks = {"Espresso", "Latte", "Cappuccino", "Cold Brew", "Specialty"};
         return drinks[r.nextInt(drinks.length)];
     }
 
-    private int getPrepTime(String drink) {
-        switch (drink) {
-            case "Cold Brew": return 1;
-            case "Espresso": return 2;
-            case "Americano": return 2;
-            case "Cappuccino": return 4;
-            case "Latte": return 4;
-            case "Specialty": return 6;
-            default: return 2;
+    // Splits the case range in halves until each leaf is small, then merges the partial aggregates
+    @SuppressWarnings("serial") // never serialized; fork/join tasks are Serializable only by inheritance
+    private final class ScenarioTask extends RecursiveTask<ScenarioAggregate> {
+        private static final int LEAF_SIZE = 4;
+        private final SplittableRandom[] streams;
+        private final int from;
+        private final int to;
+        private final AssignmentMode mode;
+        private final ScoringStrategy scoring;
+        private final Consumer<SimulationReport> onCase;
+        private final BooleanSupplier cancelled;
+
+        ScenarioTask(SplittableRandom[] streams, int from, int to, AssignmentMode mode, ScoringStrategy scoring,
+                     Consumer<SimulationReport> onCase, BooleanSupplier cancelled) {
+            this.streams = streams;
+            this.from = from;
+            this.to = to;
+            this.mode = mode;
+            this.scoring = scoring;
+            this.onCase = onCase;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected ScenarioAggregate compute() {
+            if (to - from <= LEAF_SIZE) {
+                ScenarioAggregate aggregate = new ScenarioAggregate();
+                for (int i = from; i < to && !cancelled.getAsBoolean(); i++) {
+                    SimulationReport report = runTestCase(i + 1, streams[i], mode, scoring);
+                    aggregate.add(report);
+                    onCase.accept(report);
+                }
+                return aggregate;
+            }
+            int mid = (from + to) >>> 1;
+            ScenarioTask left = new ScenarioTask(streams, from, mid, mode, scoring, onCase, cancelled);
+            left.fork();
+            ScenarioAggregate right = new ScenarioTask(streams, mid, to, mode, scoring, onCase, cancelled).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static final class ScenarioAggregate {
+        private long totalOrders;
+        private long servedOrders;
+        private long complaints;
+        private long totalWaitSeconds;
+        private final long[] waitHistogram = new long[SimulationRun.WAIT_HISTOGRAM_SECONDS + 1];
+
+        void add(SimulationReport report) {
+            totalOrders += report.getTotalOrders();
+            servedOrders += report.getServedOrders();
+            complaints += report.getComplaintsCount();
+            int[] histogram = report.getWaitHistogram();
+            for (int s = 0; s < histogram.length; s++) {
+                waitHistogram[s] += histogram[s];
+                totalWaitSeconds += (long) s * histogram[s];
+            }
+        }
+
+        ScenarioAggregate merge(ScenarioAggregate other) {
+            totalOrders += other.totalOrders;
+            servedOrders += other.servedOrders;
+            complaints += other.complaints;
+            totalWaitSeconds += other.totalWaitSeconds;
+            for (int s = 0; s < waitHistogram.length; s++) {
+                waitHistogram[s] += other.waitHistogram[s];
+            }
+            return this;
+        }
+
+        SimulationSummary toSummary(int scenarios, long masterSeed) {
+            SimulationSummary summary = new SimulationSummary();
+            summary.setScenarios(scenarios);
+            summary.setMasterSeed(masterSeed);
+            summary.setTotalOrders(totalOrders);
+            summary.setServedOrders(servedOrders);
+            summary.setComplaintsCount(complaints);
+            summary.setComplaintRate(totalOrders > 0 ? (double) complaints / totalOrders : 0);
+            summary.setMeanWaitMinutes(servedOrders > 0 ? totalWaitSeconds / 60.0 / servedOrders : 0);
+            summary.setP50WaitMinutes(percentileMinutes(0.50));
+            summary.setP95WaitMinutes(percentileMinutes(0.95));
+            summary.setP99WaitMinutes(percentileMinutes(0.99));
+            return summary;
+        }
+
+        private double percentileMinutes(double q) {
+            if (servedOrders == 0) return 0;
+            long rank = (long) Math.ceil(q * servedOrders);
+            long seen = 0;
+            for (int s = 0; s < waitHistogram.length; s++) {
+                seen += waitHistogram[s];
+                if (seen >= rank) return s / 60.0;
+            }
+            return SimulationRun.WAIT_HISTOGRAM_SECONDS / 60.0;
         }
     }
 }
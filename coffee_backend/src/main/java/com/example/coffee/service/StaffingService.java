@@ -0,0 +1,369 @@
+package com.example.coffee.service;
+
+import com.example.coffee.dispatch.AssignmentMode;
+import com.example.coffee.dispatch.ScoringStrategy;
+import com.example.coffee.simulation.ArrivalSource;
+import com.example.coffee.simulation.SimulationRun;
+import com.example.coffee.simulation.TraceArrivalSource;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Capacity planning: the cheapest per-hour barista staffing (fewest barista-hours) whose simulated days
+ * stay within a complaint-rate and, optionally, a p95-wait SLA.
+ *
+ * The hourly arrival profile is turned into {@code scenarios} random days once, up front, and every
+ * candidate plan runs against those same days: candidates differ only in staffing, and generating
+ * arrivals costs the same whatever the number of candidates.
+ *
+ * The search assumes that more baristas in any hour never make a day worse. It first finds the smallest
+ * uniform staffing that meets the SLA (levels evaluated in parallel, lowest first), then takes away one
+ * barista-hour at a time: every single-hour reduction is evaluated in parallel and the one with the most
+ * slack is kept, until none meets the SLA. Two things keep that cheap:
+ * - a candidate that staffs no hour above a plan already known to fail is failed without running it;
+ * - a candidate stops running days once its complaints exceed what the SLA allows over all of them.
+ * Which plan wins doesn't depend on how evaluations were spread over threads. Over HTTP the search runs
+ * like a sweep, on SimulationJobService's executor and pool.
+ */
+@Service
+@RequiredArgsConstructor
+public class StaffingService {
+
+    // What one request may make the planner generate and hold: every scenario's day stays in memory
+    static final int MAX_ORDERS_PER_HOUR = 5_000;
+    static final long MAX_SIMULATED_ORDERS = 2_000_000; // expected orders per day times scenarios
+
+    private final PriorityService priorityService;
+
+    @Data
+    public static class StaffingRequest {
+        private List<Integer> arrivalsPerHour; // expected orders in each hour of the day, from opening
+        private double maxComplaintRate = 0.05;
+        private Double maxP95WaitMinutes;      // optional
+        private int maxBaristas = 12;
+        private int scenarios = 20;
+        private long seed = 42;
+        private AssignmentMode mode = AssignmentMode.BALANCED;
+    }
+
+    @Data
+    public static class StaffingPlan {
+        private int[] baristasPerHour;
+        private int baristaHours;
+        private boolean feasible; // false: even maxBaristas in every hour misses the SLA
+        private long totalOrders;
+        private double complaintRate;
+        private double meanWaitMinutes;
+        private double p95WaitMinutes;
+        private int candidatesEvaluated;
+        private int candidatesPruned;
+        private long elapsedMillis;
+    }
+
+    /** Throws IllegalArgumentException for a request that can't be planned. */
+    public StaffingPlan plan(StaffingRequest request, ForkJoinPool pool) {
+        validate(request);
+        long started = System.nanoTime();
+        int hours = request.getArrivalsPerHour().size();
+
+        SplittableRandom master = new SplittableRandom(request.getSeed());
+        Day[] days = new Day[request.getScenarios()];
+        for (int s = 0; s < days.length; s++) {
+            days[s] = Day.generate(request.getArrivalsPerHour(), master.split());
+        }
+        Search search = new Search(request, days, priorityService.getStrategy(), pool);
+
+        // 1. The smallest uniform staffing that meets the SLA, a pool's worth of levels at a time
+        int[] best = null;
+        Evaluation bestResult = null;
+        int chunk = Math.max(1, pool.getParallelism());
+        for (int low = 1; low <= request.getMaxBaristas() && best == null; low += chunk) {
+            List<int[]> uniform = new ArrayList<>();
+            for (int n = low; n < low + chunk && n <= request.getMaxBaristas(); n++) {
+                int[] levels = new int[hours];
+                Arrays.fill(levels, n);
+                uniform.add(levels);
+            }
+            Evaluation[] results = search.evaluate(uniform);
+            for (int k = 0; k < results.length && best == null; k++) {
+                if (results[k].meets) {
+                    best = uniform.get(k);
+                    bestResult = results[k];
+                }
+            }
+        }
+        if (best == null) {
+            int[] most = new int[hours];
+            Arrays.fill(most, request.getMaxBaristas());
+            return search.toPlan(most, search.run(most, false), false, started);
+        }
+
+        // 2. Take away one barista-hour at a time while the SLA still holds
+        while (true) {
+            List<int[]> candidates = new ArrayList<>();
+            for (int h = 0; h < hours; h++) {
+                if (best[h] == 0 || (best[h] == 1 && Arrays.stream(best).sum() == 1)) continue;
+                int[] candidate = best.clone();
+                candidate[h]--;
+                candidates.add(candidate);
+            }
+            Evaluation[] round = search.evaluate(candidates);
+            int pick = -1;
+            for (int k = 0; k < round.length; k++) {
+                if (round[k].meets && (pick < 0 || round[k].slackerThan(round[pick]))) pick = k;
+            }
+            if (pick < 0) break;
+            best = candidates.get(pick);
+            bestResult = round[pick];
+        }
+        return search.toPlan(best, bestResult, true, started);
+    }
+
+    static void validate(StaffingRequest request) {
+        List<Integer> profile = request.getArrivalsPerHour();
+        if (profile == null || profile.isEmpty() || profile.size() > 24) {
+            throw new IllegalArgumentException("arrivalsPerHour needs 1 to 24 hours");
+        }
+        long perDay = 0;
+        for (Integer orders : profile) {
+            if (orders == null || orders < 0 || orders > MAX_ORDERS_PER_HOUR) {
+                throw new IllegalArgumentException("arrivalsPerHour must be between 0 and " + MAX_ORDERS_PER_HOUR);
+            }
+            perDay += orders;
+        }
+        if (request.getMaxComplaintRate() < 0 || request.getMaxComplaintRate() > 1) {
+            throw new IllegalArgumentException("maxComplaintRate must be between 0 and 1");
+        }
+        if (request.getMaxBaristas() < 1 || request.getMaxBaristas() > SimulationService.MAX_BARISTAS) {
+            throw new IllegalArgumentException("maxBaristas must be between 1 and " + SimulationService.MAX_BARISTAS);
+        }
+        if (request.getScenarios() < 1 || request.getScenarios() > 1000) {
+            throw new IllegalArgumentException("scenarios must be between 1 and 1000");
+        }
+        if (perDay * request.getScenarios() > MAX_SIMULATED_ORDERS) {
+            throw new IllegalArgumentException("At most " + MAX_SIMULATED_ORDERS + " orders over all scenarios");
+        }
+        if (request.getMode() == null) throw new IllegalArgumentException("mode is required");
+    }
+
+    // The outcome of one candidate over all days; partial (and failing) when it was cut short
+    private static final class Evaluation {
+        boolean meets;
+        boolean pruned;
+        long orders;
+        long served;
+        long complaints;
+        long waitSeconds;
+        double p95WaitMinutes;
+
+        boolean slackerThan(Evaluation other) {
+            if (complaints != other.complaints) return complaints < other.complaints;
+            return p95WaitMinutes < other.p95WaitMinutes;
+        }
+    }
+
+    private static final class Search {
+        private final StaffingRequest request;
+        private final Day[] days;
+        private final ScoringStrategy scoring;
+        private final ForkJoinPool pool;
+        private final long complaintBudget;
+        private final List<int[]> failures = new ArrayList<>();
+        private int evaluated;
+        private int pruned;
+
+        Search(StaffingRequest request, Day[] days, ScoringStrategy scoring, ForkJoinPool pool) {
+            this.request = request;
+            this.days = days;
+            this.scoring = scoring;
+            this.pool = pool;
+            long totalOrders = 0;
+            for (Day day : days) totalOrders += day.count;
+            this.complaintBudget = (long) Math.floor(request.getMaxComplaintRate() * totalOrders);
+        }
+
+        Evaluation[] evaluate(List<int[]> candidates) {
+            Evaluation[] results = new Evaluation[candidates.size()];
+            List<Integer> toRun = new ArrayList<>();
+            for (int k = 0; k < results.length; k++) {
+                if (dominatedByFailure(candidates.get(k))) {
+                    results[k] = new Evaluation();
+                    results[k].pruned = true;
+                    pruned++;
+                } else {
+                    toRun.add(k);
+                }
+            }
+            pool.invoke(new EvaluateTask(candidates, toRun, 0, toRun.size(), results));
+            for (int k : toRun) {
+                evaluated++;
+                if (!results[k].meets) failures.add(candidates.get(k));
+            }
+            return results;
+        }
+
+        // Fails too if it has no more baristas than a failed plan in any hour
+        private boolean dominatedByFailure(int[] candidate) {
+            for (int[] failed : failures) {
+                boolean dominated = true;
+                for (int h = 0; h < candidate.length && dominated; h++) {
+                    dominated = candidate[h] <= failed[h];
+                }
+                if (dominated) return true;
+            }
+            return false;
+        }
+
+        Evaluation run(int[] staffing, boolean stopEarly) {
+            int baristas = Math.max(1, Arrays.stream(staffing).max().orElse(1));
+            SimulationRun run = new SimulationRun(0, baristas, request.getMode(), scoring);
+            run.setStaffing(staffing);
+            Evaluation result = new Evaluation();
+            long[] histogram = new long[SimulationRun.WAIT_HISTOGRAM_SECONDS + 1];
+            for (Day day : days) {
+                run.execute(day.arrivals());
+                result.orders += run.getArrivalCount();
+                result.served += run.getServed();
+                result.complaints += run.getComplaints();
+                result.waitSeconds += run.getTotalWaitSeconds();
+                if (result.complaints > complaintBudget && stopEarly) return result; // can't meet the SLA anymore
+                int[] dayHistogram = run.getWaitHistogram();
+                for (int s = 0; s < dayHistogram.length; s++) histogram[s] += dayHistogram[s];
+            }
+            result.p95WaitMinutes = percentileMinutes(histogram, result.served, 0.95);
+            result.meets = result.complaints <= complaintBudget && (request.getMaxP95WaitMinutes() == null
+                    || result.p95WaitMinutes <= request.getMaxP95WaitMinutes());
+            return result;
+        }
+
+        StaffingPlan toPlan(int[] staffing, Evaluation result, boolean feasible, long started) {
+            StaffingPlan plan = new StaffingPlan();
+            plan.setBaristasPerHour(staffing);
+            plan.setBaristaHours(Arrays.stream(staffing).sum());
+            plan.setFeasible(feasible);
+            plan.setTotalOrders(result.orders);
+            plan.setComplaintRate(result.orders > 0 ? (double) result.complaints / result.orders : 0);
+            plan.setMeanWaitMinutes(result.served > 0 ? result.waitSeconds / 60.0 / result.served : 0);
+            plan.setP95WaitMinutes(result.p95WaitMinutes);
+            plan.setCandidatesEvaluated(evaluated);
+            plan.setCandidatesPruned(pruned);
+            plan.setElapsedMillis((System.nanoTime() - started) / 1_000_000);
+            return plan;
+        }
+
+        // One candidate per leaf: each is a full run over every day
+        @SuppressWarnings("serial") // never serialized, like SimulationService.ScenarioTask
+        private final class EvaluateTask extends RecursiveAction {
+            private final List<int[]> candidates;
+            private final List<Integer> toRun;
+            private final int from;
+            private final int to;
+            private final Evaluation[] results;
+
+            EvaluateTask(List<int[]> candidates, List<Integer> toRun, int from, int to, Evaluation[] results) {
+                this.candidates = candidates;
+                this.toRun = toRun;
+                this.from = from;
+                this.to = to;
+                this.results = results;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from <= 1) {
+                    if (from < to) {
+                        int k = toRun.get(from);
+                        results[k] = run(candidates.get(k), true);
+                    }
+                    return;
+                }
+                int mid = (from + to) >>> 1;
+                invokeAll(new EvaluateTask(candidates, toRun, from, mid, results),
+                        new EvaluateTask(candidates, toRun, mid, to, results));
+            }
+        }
+    }
+
+    private static double percentileMinutes(long[] histogram, long served, double q) {
+        if (served == 0) return 0;
+        long rank = (long) Math.ceil(q * served);
+        long seen = 0;
+        for (int s = 0; s < histogram.length; s++) {
+            seen += histogram[s];
+            if (seen >= rank) return s / 60.0;
+        }
+        return SimulationRun.WAIT_HISTOGRAM_SECONDS / 60.0;
+    }
+
+    // One generated day, shared read-only by every candidate
+    private static final class Day {
+        private int[] second = new int[256];
+        private byte[] prep = new byte[256];
+        private boolean[] loyal = new boolean[256];
+        private int count;
+
+        // Poisson arrivals at each hour's rate (restarting at the hour boundary is exact, the process
+        // being memoryless), with the same drink mix and loyalty share as the generated test cases
+        static Day generate(List<Integer> arrivalsPerHour, SplittableRandom rand) {
+            Day day = new Day();
+            for (int h = 0; h < arrivalsPerHour.size(); h++) {
+                double perSecond = arrivalsPerHour.get(h) / 3600.0;
+                double t = h * 3600.0;
+                double hourEnd = t + 3600;
+                while (perSecond > 0) {
+                    t += -Math.log(1 - rand.nextDouble()) / perSecond;
+                    if (t >= hourEnd) break;
+                    day.add((int) t, TraceArrivalSource.prepMinutesFor(SimulationService.getRandomDrink(rand)),
+                            rand.nextDouble() > 0.8);
+                }
+            }
+            return day;
+        }
+
+        private void add(int arrivalSecond, int prepMinutes, boolean loyalty) {
+            if (count == second.length) {
+                second = Arrays.copyOf(second, count * 2);
+                prep = Arrays.copyOf(prep, count * 2);
+                loyal = Arrays.copyOf(loyal, count * 2);
+            }
+            second[count] = arrivalSecond;
+            prep[count] = (byte) prepMinutes;
+            loyal[count] = loyalty;
+            count++;
+        }
+
+        ArrivalSource arrivals() {
+            return new ArrivalSource() {
+                private int cursor = -1;
+
+                @Override
+                public boolean next() {
+                    return ++cursor < count;
+                }
+
+                @Override
+                public long arrivalSecond() {
+                    return second[cursor];
+                }
+
+                @Override
+                public int prepMinutes() {
+                    return prep[cursor];
+                }
+
+                @Override
+                public boolean loyal() {
+                    return loyal[cursor];
+                }
+            };
+        }
+    }
+}
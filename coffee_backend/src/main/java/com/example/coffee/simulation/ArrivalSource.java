@@ -0,0 +1,21 @@
+package com.example.coffee.simulation;
+
+/**
+ * Orders for a {@link SimulationRun}, pulled one at a time in arrival order, so a trace of any length
+ * can be replayed without holding it in memory.
+ *
+ * A source is a cursor: the getters describe the arrival loaded by the last {@link #next()} that
+ * returned true, which lets implementations reuse their fields instead of allocating per order.
+ */
+public interface ArrivalSource {
+
+    /** Moves to the next arrival; false once there are no more. */
+    boolean next();
+
+    /** Seconds since the start of the run. */
+    long arrivalSecond();
+
+    int prepMinutes();
+
+    boolean loyal();
+}
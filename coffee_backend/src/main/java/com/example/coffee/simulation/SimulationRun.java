@@ -0,0 +1,446 @@
+package com.example.coffee.simulation;
+
+import com.example.coffee.dispatch.AssignmentMode;
+import com.example.coffee.dispatch.BatchAssigner;
+import com.example.coffee.dispatch.ScoreHeap;
+import com.example.coffee.dispatch.ScoringStrategy;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * State and event loop of one simulated rush, stored as flat primitive arrays.
+ *
+ * Waiting orders are slots in parallel arrays (arrival second, prep minutes, loyalty) and baristas are
+ * indexes into their own arrays. Events live in an indexed heap keyed by time, with one entry per
+ * waiting order (its next score boundary, or its abandonment) and one per busy barista.
+ * Arrivals are pulled from an {@link ArrivalSource} as the clock reaches them, and a slot is reused as
+ * soon as its order is assigned or abandoned, so memory follows the longest queue, not the length of
+ * the trace. Orders can also be loaded up front with {@link #addOrder}; those runs are sized in the
+ * constructor, so {@link #execute()} allocates nothing while it runs.
+ *
+ * The {@link AssignmentMode} picks how free baristas get orders: GREEDY and BALANCED walk the free
+ * baristas one by one, OPTIMAL matches them all at once with a {@link BatchAssigner} (no time budget,
+ * so runs stay reproducible).
+ *
+ * Orders are scored with the same {@link ScoringStrategy} as live dispatch (the production defaults
+ * unless one is passed in), so a simulation predicts what the shop would do with that formula.
+ */
+public final class SimulationRun {
+
+    public static final int MAX_PREP_MINUTES = 10;
+    public static final int WAIT_HISTOGRAM_SECONDS = 60 * 60; // 1s buckets up to an hour, then one overflow bucket
+
+    private static final int ABANDON_AFTER_MINUTES = 11; // first whole minute past the 10 min timeout
+
+    // Orders loaded with addOrder, sorted by arrival (seconds since the simulation start)
+    private final long[] arrivalSec;
+    private final int[] prepMinutes;
+    private final BitSet loyalty;
+    private int orderCount;
+    private final LoadedOrders loaded = new LoadedOrders();
+
+    // Waiting orders by slot; free slots are a stack, lowest slot on top after a reset
+    private long[] slotArrival;
+    private int[] slotPrep;
+    private boolean[] slotLoyal;
+    private long[] slotSequence; // arrival number, the tie-break between equal scores
+    private int[] freeSlots;
+    private int freeCount;
+    private long arrivalCount;
+
+    // Baristas
+    private final int baristaCount;
+    private final long[] baristaFreeAt;
+    private final int[] baristaMinutesWorked;
+    private final int[] baristaOrderCount;
+    // Baristas on duty in each hour of the run (barista b works hour h if b < staffing[h]); null = all of them
+    private int[] staffing;
+
+    // Waiting orders, one heap per prep time so the workload-balancing picks
+    // ("best quick order", "best long order") are O(prep classes) instead of a queue scan
+    private final ScoreHeap[] waitingByPrep = new ScoreHeap[MAX_PREP_MINUTES + 1];
+    private int waitingCount;
+
+    // Future events keyed by -time (so the heap top is the earliest); handle b < baristaCount is
+    // "barista b becomes free", handle baristaCount + i is the next boundary of order i
+    private final ScoreHeap events;
+
+    private final AssignmentMode mode;
+    private final ScoringStrategy scoring;
+    private final int scoreSteps; // the score moves every minute up to this many minutes
+    // OPTIMAL scratch: the candidates are the best few orders of every prep class
+    private final BatchAssigner batchAssigner = new BatchAssigner(0);
+    private final int[] idleBaristas;
+    private final int[] idleLoads;
+    private final int[] picks;
+    private final int[] candidateOrders;
+    private final double[] candidateScores;
+    private final int[] candidatePreps;
+    private final long[] candidateTies;
+    private final int[] topScratch;
+
+    // Results
+    private long totalWaitSeconds;
+    private final int[] waitHistogram = new int[WAIT_HISTOGRAM_SECONDS + 1];
+    private int complaints;
+    private int served;
+
+    public SimulationRun(int orderCapacity, int baristaCount) {
+        this(orderCapacity, baristaCount, AssignmentMode.BALANCED);
+    }
+
+    public SimulationRun(int orderCapacity, int baristaCount, AssignmentMode mode) {
+        this(orderCapacity, baristaCount, mode, ScoringStrategy.DEFAULT);
+    }
+
+    /** {@code orderCapacity} is how many orders {@link #addOrder} can load; 0 for a run fed only by sources. */
+    public SimulationRun(int orderCapacity, int baristaCount, AssignmentMode mode, ScoringStrategy scoring) {
+        this.mode = mode;
+        this.scoring = scoring;
+        this.scoreSteps = scoring.getSaturationMinutes();
+        this.arrivalSec = new long[orderCapacity];
+        this.prepMinutes = new int[orderCapacity];
+        this.loyalty = new BitSet(orderCapacity);
+        int slots = Math.max(orderCapacity, 16);
+        this.slotArrival = new long[slots];
+        this.slotPrep = new int[slots];
+        this.slotLoyal = new boolean[slots];
+        this.slotSequence = new long[slots];
+        this.freeSlots = new int[slots];
+        this.baristaCount = baristaCount;
+        this.baristaFreeAt = new long[baristaCount];
+        this.baristaMinutesWorked = new int[baristaCount];
+        this.baristaOrderCount = new int[baristaCount];
+        for (int prep = 0; prep <= MAX_PREP_MINUTES; prep++) {
+            waitingByPrep[prep] = new ScoreHeap(orderCapacity);
+        }
+        this.events = new ScoreHeap(baristaCount + orderCapacity);
+        this.idleBaristas = new int[baristaCount];
+        this.idleLoads = new int[baristaCount];
+        this.picks = new int[baristaCount];
+        int maxCandidates = (MAX_PREP_MINUTES + 1) * baristaCount;
+        this.candidateOrders = new int[maxCandidates];
+        this.candidateScores = new double[maxCandidates];
+        this.candidatePreps = new int[maxCandidates];
+        this.candidateTies = new long[maxCandidates];
+        this.topScratch = new int[baristaCount];
+    }
+
+    public AssignmentMode getMode() {
+        return mode;
+    }
+
+    /** Appends an order. Orders must be added in arrival order. */
+    public void addOrder(long arrivalSecond, int prep, boolean loyal) {
+        int i = orderCount++;
+        arrivalSec[i] = arrivalSecond;
+        prepMinutes[i] = Math.min(prep, MAX_PREP_MINUTES);
+        loyalty.set(i, loyal);
+    }
+
+    /**
+     * Staffs the run per hour: {@code baristasPerHour[h]} of the baristas take orders during hour h, and
+     * hours past the end keep the last level so the queue can drain. A barista going off duty finishes
+     * the drink in hand first. Null goes back to everyone, always.
+     */
+    public void setStaffing(int[] baristasPerHour) {
+        if (baristasPerHour != null) {
+            if (baristasPerHour.length == 0) throw new IllegalArgumentException("No hours");
+            for (int level : baristasPerHour) {
+                if (level < 0 || level > baristaCount) throw new IllegalArgumentException("Staffing level " + level);
+            }
+        }
+        staffing = baristasPerHour == null ? null : baristasPerHour.clone();
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    /** Forgets all orders and results so the run can be loaded again. */
+    public void clear() {
+        orderCount = 0;
+        loyalty.clear();
+        resetState();
+    }
+
+    /** Runs the event loop over the loaded orders. Can be called again to replay the same orders. */
+    public void execute() {
+        loaded.cursor = -1;
+        execute(loaded);
+    }
+
+    /**
+     * Runs the event loop over the arrivals of {@code source}, reading each one when the clock gets there.
+     * An arrival earlier than the one before it (a slightly unsorted trace) arrives together with it.
+     */
+    public void execute(ArrivalSource source) {
+        resetState();
+        boolean more = source.next();
+        long now = Long.MIN_VALUE;
+
+        // LOOP
+        while (more || !events.isEmpty()) {
+            long nextEvent = events.isEmpty() ? Long.MAX_VALUE : -(long) events.scoreOf(events.peek());
+            long nextArrivalAt = more ? Math.max(source.arrivalSecond(), now) : Long.MAX_VALUE;
+            now = Math.min(nextEvent, nextArrivalAt);
+
+            // 1. Add arrived orders
+            while (more && source.arrivalSecond() <= now) {
+                admit(now, source.prepMinutes(), source.loyal());
+                more = source.next();
+            }
+
+            // 2. Apply everything else that happens at this instant
+            while (!events.isEmpty() && -(long) events.scoreOf(events.peek()) == now) {
+                int handle = events.poll();
+                if (handle < baristaCount) continue; // barista free: the dispatch below picks it up
+
+                int i = handle - baristaCount;
+                long waitMins = (now - slotArrival[i]) / 60;
+                if (waitMins >= ABANDON_AFTER_MINUTES) {
+                    // > 10 min hard timeout (Order Abandoned / Lost)
+                    waitingByPrep[slotPrep[i]].remove(i);
+                    waitingCount--;
+                    freeSlots[freeCount++] = i;
+                    complaints++; // Count as bad outcome
+                } else {
+                    waitingByPrep[slotPrep[i]].update(i, score(i, waitMins));
+                    long nextMinute = waitMins < scoreSteps ? Math.min(waitMins + 1, ABANDON_AFTER_MINUTES) : ABANDON_AFTER_MINUTES;
+                    events.insert(handle, -(slotArrival[i] + nextMinute * 60), handle);
+                }
+            }
+
+            // 3. ASSIGN TO BARISTAS (Workload Balancing)
+            if (waitingCount > 0) {
+                if (mode == AssignmentMode.OPTIMAL) dispatchOptimal(now);
+                else dispatch(now);
+            }
+        }
+    }
+
+    private void dispatch(long now) {
+        // Calculate Avg Workload
+        double totalWork = 0;
+        for (int b = 0; b < baristaCount; b++) totalWork += baristaMinutesWorked[b];
+        double avgWork = totalWork / baristaCount;
+
+        for (int b = 0; b < baristaCount && waitingCount > 0; b++) {
+            if (baristaFreeAt[b] > now) continue;
+            if (!onDuty(b, now)) continue;
+
+            // Workload Balancing Strategy
+            double ratio = avgWork > 0 ? baristaMinutesWorked[b] / avgWork : 1.0;
+            int best = -1;
+            if (mode == AssignmentMode.GREEDY) {
+                // No balancing: straight to the fallback
+            } else if (ratio > 1.2) {
+                // Overloaded: Prefer Quick Orders (< 3 mins)
+                best = bestWaiting(0, 2);
+            } else if (ratio < 0.8) {
+                // Underutilized: Prefer Complex Orders (>= 4 mins)
+                best = bestWaiting(4, MAX_PREP_MINUTES);
+            }
+            // Fallback: Just take top priority
+            if (best < 0) best = bestWaiting(0, MAX_PREP_MINUTES);
+
+            assign(b, best, now);
+        }
+    }
+
+    // All free baristas against the best few waiting orders of each prep class, as one min-cost matching
+    private void dispatchOptimal(long now) {
+        int totalWork = 0;
+        int idle = 0;
+        for (int b = 0; b < baristaCount; b++) {
+            totalWork += baristaMinutesWorked[b];
+            if (baristaFreeAt[b] <= now && onDuty(b, now)) {
+                idleLoads[idle] = baristaMinutesWorked[b];
+                idleBaristas[idle++] = b;
+            }
+        }
+        if (idle == 0) return;
+
+        // The top `idle` of every class include the overall top `idle`, whatever the matching prefers
+        int candidates = 0;
+        for (int prep = 0; prep <= MAX_PREP_MINUTES; prep++) {
+            ScoreHeap heap = waitingByPrep[prep];
+            int n = heap.topHandles(idle, topScratch);
+            for (int t = 0; t < n; t++) {
+                int i = topScratch[t];
+                candidateOrders[candidates] = i;
+                candidateScores[candidates] = heap.scoreOf(i);
+                candidatePreps[candidates] = prep;
+                candidateTies[candidates] = slotSequence[i];
+                candidates++;
+            }
+        }
+
+        batchAssigner.assign(AssignmentMode.OPTIMAL, idle, idleLoads, (double) totalWork / baristaCount,
+                candidates, candidateScores, candidatePreps, candidateTies, picks);
+        for (int k = 0; k < idle; k++) {
+            if (picks[k] >= 0) assign(idleBaristas[k], candidateOrders[picks[k]], now);
+        }
+    }
+
+    private void admit(long now, int prep, boolean loyal) {
+        if (freeCount == 0) growSlots();
+        int i = freeSlots[--freeCount];
+        slotArrival[i] = now;
+        slotPrep[i] = Math.max(0, Math.min(prep, MAX_PREP_MINUTES));
+        slotLoyal[i] = loyal;
+        slotSequence[i] = arrivalCount++;
+        waitingByPrep[slotPrep[i]].insert(i, score(i, 0), slotSequence[i]);
+        waitingCount++;
+        events.insert(baristaCount + i, -(now + 60), baristaCount + i);
+    }
+
+    // Only when more orders wait at once than ever before in this run's lifetime
+    private void growSlots() {
+        int old = slotArrival.length;
+        int capacity = old * 2;
+        slotArrival = Arrays.copyOf(slotArrival, capacity);
+        slotPrep = Arrays.copyOf(slotPrep, capacity);
+        slotLoyal = Arrays.copyOf(slotLoyal, capacity);
+        slotSequence = Arrays.copyOf(slotSequence, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+        for (int i = capacity - 1; i >= old; i--) freeSlots[freeCount++] = i;
+    }
+
+    private void assign(int b, int best, long now) {
+        int prep = slotPrep[best];
+        waitingByPrep[prep].remove(best);
+        events.remove(baristaCount + best);
+        waitingCount--;
+        freeSlots[freeCount++] = best;
+
+        long end = now + prep * 60L;
+        baristaFreeAt[b] = end;
+        baristaOrderCount[b]++;
+        baristaMinutesWorked[b] += prep;
+        events.insert(b, -end, b);
+
+        long totalTime = end - slotArrival[best];
+        totalWaitSeconds += totalTime;
+        waitHistogram[(int) Math.min(totalTime, WAIT_HISTOGRAM_SECONDS)]++;
+        served++;
+
+        // If we took > 8 mins to serve, it's still a "Complaint" in our stats
+        if ((now - slotArrival[best]) / 60 > 8) complaints++;
+    }
+
+    // Off duty now: wakes the dispatch when the barista's next shift starts, if there is one
+    private boolean onDuty(int b, long now) {
+        if (staffing == null) return true;
+        int hour = (int) Math.min(Math.max(now, 0) / 3600, staffing.length - 1);
+        if (b < staffing[hour]) return true;
+        if (!events.contains(b)) {
+            for (int h = hour + 1; h < staffing.length; h++) {
+                if (b < staffing[h]) {
+                    events.insert(b, -(h * 3600L), b);
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Highest-priority waiting order whose prep time is within [minPrep, maxPrep], or -1
+    private int bestWaiting(int minPrep, int maxPrep) {
+        int best = -1;
+        double bestScore = 0;
+        for (int prep = minPrep; prep <= maxPrep; prep++) {
+            ScoreHeap heap = waitingByPrep[prep];
+            if (heap.isEmpty()) continue;
+            int top = heap.peek();
+            double topScore = heap.scoreOf(top);
+            // Equal scores: earlier arrival first, same as within a heap
+            if (best < 0 || topScore > bestScore || (topScore == bestScore && slotSequence[top] < slotSequence[best])) {
+                best = top;
+                bestScore = topScore;
+            }
+        }
+        return best;
+    }
+
+    private double score(int i, long waitMins) {
+        return scoring.score(waitMins, slotPrep[i], slotLoyal[i]);
+    }
+
+    private void resetState() {
+        Arrays.fill(baristaFreeAt, 0);
+        Arrays.fill(baristaMinutesWorked, 0);
+        Arrays.fill(baristaOrderCount, 0);
+        for (ScoreHeap heap : waitingByPrep) heap.clear();
+        events.clear();
+        waitingCount = 0;
+        freeCount = 0;
+        for (int i = freeSlots.length - 1; i >= 0; i--) freeSlots[freeCount++] = i;
+        arrivalCount = 0;
+        totalWaitSeconds = 0;
+        Arrays.fill(waitHistogram, 0);
+        complaints = 0;
+        served = 0;
+    }
+
+    // How many orders could wait at once without growing
+    int slotCapacity() {
+        return freeSlots.length;
+    }
+
+    /** Orders that arrived in the last run, loaded or streamed. */
+    public long getArrivalCount() {
+        return arrivalCount;
+    }
+
+    public int getBaristaCount() {
+        return baristaCount;
+    }
+
+    public int getBaristaOrderCount(int barista) {
+        return baristaOrderCount[barista];
+    }
+
+    public long getTotalWaitSeconds() {
+        return totalWaitSeconds;
+    }
+
+    public int getComplaints() {
+        return complaints;
+    }
+
+    public int getServed() {
+        return served;
+    }
+
+    /** Live histogram of arrival-to-completion seconds; copy it if the run will be reused. */
+    public int[] getWaitHistogram() {
+        return waitHistogram;
+    }
+
+    // The orders loaded with addOrder, replayed as a source
+    private final class LoadedOrders implements ArrivalSource {
+        private int cursor = -1;
+
+        @Override
+        public boolean next() {
+            return ++cursor < orderCount;
+        }
+
+        @Override
+        public long arrivalSecond() {
+            return arrivalSec[cursor];
+        }
+
+        @Override
+        public int prepMinutes() {
+            return prepMinutes[cursor];
+        }
+
+        @Override
+        public boolean loyal() {
+            return loyalty.get(cursor);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.coffee.simulation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Arrivals read line by line from a recorded trace, as CSV with a header row or as NDJSON (one object
+ * per line; the first non-blank line decides which).
+ *
+ * Recognised columns / fields, case and underscores ignored:
+ * <ul>
+ *   <li>arrival_time (or arrival): ISO date-time, or a number of seconds since the start of the trace</li>
+ *   <li>drink_type (or drink): mapped to a prep time, unless prep_minutes / prep_time_minutes is given</li>
+ *   <li>loyalty_member (or is_loyalty_member, loyal): true / 1 / yes</li>
+ *   <li>event (or type): when present, only CREATED rows are arrivals</li>
+ * </ul>
+ * so exported order history and the order journal's CSV export can be replayed as they are.
+ * Date-time arrivals are counted from {@code from}, or from the first arrival when there is no window;
+ * ones outside [from, to) are skipped. A line that can't be read throws IllegalArgumentException.
+ */
+public final class TraceArrivalSource implements ArrivalSource, Closeable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final BufferedReader reader;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private LocalDateTime start;
+    private long lineNumber;
+    private boolean formatKnown;
+    private boolean json;
+
+    // CSV column positions, -1 when absent
+    private int timeColumn = -1;
+    private int drinkColumn = -1;
+    private int prepColumn = -1;
+    private int loyalColumn = -1;
+    private int eventColumn = -1;
+
+    private long arrivalSecond;
+    private int prepMinutes;
+    private boolean loyal;
+    private long count;
+
+    public TraceArrivalSource(Reader reader) {
+        this(reader, null, null);
+    }
+
+    /** Either bound may be null. */
+    public TraceArrivalSource(Reader reader, LocalDateTime from, LocalDateTime to) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 64 * 1024);
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean next() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                if (!formatKnown) {
+                    formatKnown = true;
+                    json = line.trim().startsWith("{");
+                    if (!json) {
+                        readHeader(line);
+                        continue;
+                    }
+                }
+                if (json ? readJson(line) : readCsv(line)) return true;
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long arrivalSecond() {
+        return arrivalSecond;
+    }
+
+    @Override
+    public int prepMinutes() {
+        return prepMinutes;
+    }
+
+    @Override
+    public boolean loyal() {
+        return loyal;
+    }
+
+    /** Arrivals returned so far. */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /** Prep minutes of a drink on the menu; 2 for anything else. */
+    public static int prepMinutesFor(String drink) {
+        if (drink == null) return 2;
+        switch (drink) {
+            case "Cold Brew": return 1;
+            case "Espresso": return 2;
+            case "Americano": return 2;
+            case "Cappuccino": return 4;
+            case "Latte": return 4;
+            case "Specialty": return 6;
+            default: return 2;
+        }
+    }
+
+    // --- parsing
+
+    private void readHeader(String line) {
+        String[] names = line.split(",", -1);
+        for (int c = 0; c < names.length; c++) {
+            switch (normalize(unquote(names[c]))) {
+                case "arrivaltime", "arrival" -> timeColumn = c;
+                case "drinktype", "drink" -> drinkColumn = c;
+                case "prepminutes", "preptimeminutes" -> prepColumn = c;
+                case "loyaltymember", "isloyaltymember", "loyal" -> loyalColumn = c;
+                case "event", "type" -> eventColumn = c;
+                default -> { }
+            }
+        }
+        if (timeColumn < 0) throw invalid("the header has no arrival_time column");
+    }
+
+    private boolean readCsv(String line) {
+        String[] values = line.split(",", -1);
+        return accept(column(values, eventColumn), column(values, timeColumn), column(values, drinkColumn),
+                column(values, prepColumn), column(values, loyalColumn));
+    }
+
+    private boolean readJson(String line) {
+        JsonNode node;
+        try {
+            node = JSON.readTree(line);
+        } catch (IOException e) {
+            throw invalid("not a JSON object");
+        }
+        String event = null, time = null, drink = null, prep = null, loyalty = null;
+        for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String value = field.getValue().isNull() ? null : field.getValue().asText();
+            switch (normalize(field.getKey())) {
+                case "arrivaltime", "arrival" -> time = value;
+                case "drinktype", "drink" -> drink = value;
+                case "prepminutes", "preptimeminutes" -> prep = value;
+                case "loyaltymember", "isloyaltymember", "loyal" -> loyalty = value;
+                case "event", "type" -> event = value;
+                default -> { }
+            }
+        }
+        return accept(event, time, drink, prep, loyalty);
+    }
+
+    // Loads the arrival into the cursor; false if the row isn't an arrival in the window
+    private boolean accept(String event, String time, String drink, String prep, String loyalty) {
+        if (event != null && !event.isEmpty() && !event.equalsIgnoreCase("CREATED")) return false;
+        if (time == null || time.isEmpty()) throw invalid("no arrival time");
+        try {
+            if (Character.isDigit(time.charAt(time.length() - 1)) && time.indexOf('-') < 0) {
+                arrivalSecond = (long) Double.parseDouble(time);
+            } else {
+                LocalDateTime at = parseTime(time);
+                if ((from != null && at.isBefore(from)) || (to != null && !at.isBefore(to))) return false;
+                if (start == null) start = from != null ? from : at;
+                arrivalSecond = Duration.between(start, at).getSeconds();
+            }
+            prepMinutes = prep != null && !prep.isEmpty() ? Integer.parseInt(prep) : prepMinutesFor(drink);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw invalid(e.getMessage());
+        }
+        loyal = loyalty != null && (loyalty.equalsIgnoreCase("true") || loyalty.equals("1") || loyalty.equalsIgnoreCase("yes"));
+        count++;
+        return true;
+    }
+
+    private static LocalDateTime parseTime(String time) {
+        try {
+            return LocalDateTime.parse(time);
+        } catch (DateTimeParseException e) {
+            return OffsetDateTime.parse(time).toLocalDateTime(); // with a Z or an offset: its wall-clock time
+        }
+    }
+
+    private static String column(String[] values, int column) {
+        return column < 0 || column >= values.length ? null : unquote(values[column]);
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase();
+    }
+
+    private IllegalArgumentException invalid(String reason) {
+        return new IllegalArgumentException("Trace line " + lineNumber + ": " + reason);
+    }
+}
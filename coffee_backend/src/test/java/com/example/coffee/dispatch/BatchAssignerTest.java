@@ -0,0 +1,98 @@
+package com.example.coffee.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchAssignerTest {
+
+    private static double cost(int load, double avg, double score, int prep) {
+        return -score + BatchAssigner.LOAD_WEIGHT * (avg > 0 ? load / avg - 1.0 : 0.0) * prep;
+    }
+
+    // Exhaustive minimum over all ways to match min(n, m) baristas to distinct candidates
+    private static double bruteForce(int b, int n, int[] loads, double avg, double[] scores, int[] preps,
+                                     int m, boolean[] used, int toMatch) {
+        if (toMatch == 0) return 0;
+        if (b == n) return Double.MAX_VALUE;
+        double best = n - b > toMatch // this barista may go without if enough others are left
+                ? bruteForce(b + 1, n, loads, avg, scores, preps, m, used, toMatch)
+                : Double.MAX_VALUE;
+        for (int c = 0; c < m; c++) {
+            if (used[c]) continue;
+            used[c] = true;
+            double rest = bruteForce(b + 1, n, loads, avg, scores, preps, m, used, toMatch - 1);
+            if (rest != Double.MAX_VALUE) best = Math.min(best, cost(loads[b], avg, scores[c], preps[c]) + rest);
+            used[c] = false;
+        }
+        return best;
+    }
+
+    @Test
+    public void testOptimalMatchesBruteForce() {
+        SplittableRandom rand = new SplittableRandom(1);
+        BatchAssigner assigner = new BatchAssigner(0);
+        for (int round = 0; round < 200; round++) {
+            int n = 1 + rand.nextInt(4);
+            int m = 1 + rand.nextInt(6);
+            int[] loads = new int[n];
+            for (int b = 0; b < n; b++) loads[b] = rand.nextInt(60);
+            double avg = 10 + rand.nextInt(40);
+            double[] scores = new double[m];
+            int[] preps = new int[m];
+            long[] ties = new long[m];
+            for (int c = 0; c < m; c++) {
+                scores[c] = rand.nextInt(150);
+                preps[c] = 1 + rand.nextInt(6);
+                ties[c] = c;
+            }
+            int[] result = new int[n];
+            int assigned = assigner.assign(AssignmentMode.OPTIMAL, n, loads, avg, m, scores, preps, ties, result);
+
+            double total = 0;
+            boolean[] seen = new boolean[m];
+            for (int b = 0; b < n; b++) {
+                if (result[b] < 0) continue;
+                assertTrue(!seen[result[b]], "candidate given twice");
+                seen[result[b]] = true;
+                total += cost(loads[b], avg, scores[result[b]], preps[result[b]]);
+            }
+            assertEquals(Math.min(n, m), assigned);
+            assertEquals(bruteForce(0, n, loads, avg, scores, preps, m, new boolean[m], Math.min(n, m)), total, 1e-9);
+        }
+    }
+
+    @Test
+    public void testGreedyAndBalanced() {
+        BatchAssigner assigner = new BatchAssigner(0);
+        double[] scores = {90, 80, 70};
+        int[] preps = {6, 1, 4};
+        long[] ties = {0, 1, 2};
+        int[] result = new int[2];
+
+        // Greedy: baristas take the best orders in list order
+        assigner.assign(AssignmentMode.GREEDY, 2, new int[] {30, 0}, 15, 3, scores, preps, ties, result);
+        assertArrayEquals(new int[] {0, 1}, result);
+
+        // Balanced: the overloaded barista (2x average) skips the long drink for the quick one
+        assigner.assign(AssignmentMode.BALANCED, 2, new int[] {30, 0}, 15, 3, scores, preps, ties, result);
+        assertArrayEquals(new int[] {1, 0}, result);
+    }
+
+    @Test
+    public void testTopHandlesIsBestFirstAndLeavesHeapIntact() {
+        ScoreHeap heap = new ScoreHeap(4);
+        SplittableRandom rand = new SplittableRandom(3);
+        for (int h = 0; h < 100; h++) heap.insert(h, rand.nextInt(20), h);
+        int[] top = new int[10];
+        assertEquals(10, heap.topHandles(10, top));
+        assertEquals(100, heap.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(heap.poll(), top[i]);
+        }
+    }
+}
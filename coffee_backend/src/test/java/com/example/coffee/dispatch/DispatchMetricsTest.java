@@ -0,0 +1,64 @@
+package com.example.coffee.dispatch;
+
+import com.example.coffee.model.Barista;
+import com.example.coffee.model.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DispatchMetricsTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+    private final LocalDateTime now = LocalDateTime.now(clock);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DispatchMetrics metrics = new DispatchMetrics(registry, clock, new CompletionScheduler(clock));
+
+    private Order order(long id, int waitedMinutes) {
+        Order order = new Order();
+        order.setId(id);
+        order.setArrivalTime(now.minusMinutes(waitedMinutes));
+        order.setPrepTimeMinutes(4);
+        return order;
+    }
+
+    @Test
+    public void testStationTickGauges() {
+        StationShard station = new StationShard(1L, 0);
+        station.getQueue().add(order(1, 2));
+        station.getQueue().add(order(2, 9)); // past the urgency threshold
+        station.getBaristas().add(new Barista(1L, "Barista 1", null, 0, 30, 1L, null, 0));
+        station.getBaristas().add(new Barista(2L, "Barista 2", null, 0, 10, 1L, null, 0));
+
+        metrics.stationTicked(station, TimeUnit.MILLISECONDS.toNanos(3), 2);
+        try {
+            assertEquals(0, registry.get("coffee.orders.timeout.risk").tag("station", "1").gauge().value(), "Not counted on the tick");
+            metrics.sampleTimeoutRisk();
+            assertEquals(2, registry.get("coffee.orders.pending").tag("station", "1").gauge().value());
+            assertEquals(1, registry.get("coffee.orders.timeout.risk").tag("station", "1").gauge().value());
+            assertEquals(1, registry.get("coffee.dispatch.tick").tag("station", "1").timer().count());
+            assertEquals(2, registry.get("coffee.dispatch.rescored").summary().totalAmount());
+            assertEquals(1.5, registry.get("coffee.barista.load").tag("barista", "1").gauge().value(), 1e-9);
+            assertEquals(10, registry.get("coffee.barista.minutes.assigned").tag("barista", "2").gauge().value());
+        } finally {
+            station.stop();
+        }
+    }
+
+    @Test
+    public void testAssignmentLatencyAndCompletionLag() {
+        Order order = order(1, 6);
+        order.setStartTime(now.minusMinutes(5));
+        metrics.orderAssigned(order);
+        metrics.orderCompleted(order, now); // due a minute ago
+
+        assertEquals(60, registry.get("coffee.order.assignment.latency").timer().totalTime(TimeUnit.SECONDS), 1e-9);
+        assertEquals(60, registry.get("coffee.order.completion.lag").timer().totalTime(TimeUnit.SECONDS), 1e-9);
+    }
+}
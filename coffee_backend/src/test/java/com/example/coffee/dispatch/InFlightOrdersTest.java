@@ -0,0 +1,70 @@
+package com.example.coffee.dispatch;
+
+import com.example.coffee.model.Barista;
+import com.example.coffee.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InFlightOrdersTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    private Order order(long id, int prep) {
+        Order order = new Order();
+        order.setId(id);
+        order.setStartTime(NOW);
+        order.setPrepTimeMinutes(prep);
+        return order;
+    }
+
+    private Barista barista(long id) {
+        Barista barista = new Barista();
+        barista.setId(id);
+        return barista;
+    }
+
+    @Test
+    public void testLookupsBothWays() {
+        InFlightOrders inFlight = new InFlightOrders();
+        Barista barista = barista(1);
+        Order order = order(10, 4);
+        inFlight.start(barista, order);
+
+        assertTrue(inFlight.isMaking(1L));
+        assertSame(order, inFlight.forBarista(1L).getOrder());
+        assertSame(barista, inFlight.forOrder(10L).getBarista());
+        assertEquals(NOW.plusMinutes(4), inFlight.forOrder(10L).getDue());
+
+        assertNotNull(inFlight.finish(10L));
+        assertFalse(inFlight.isMaking(1L));
+        assertNull(inFlight.finish(10L), "Finishing twice is a no-op");
+        assertEquals(0, inFlight.size());
+    }
+
+    @Test
+    public void testLateCompletionDoesNotFreeABaristaOnTheirNextOrder() {
+        InFlightOrders inFlight = new InFlightOrders();
+        Barista barista = barista(1);
+        inFlight.start(barista, order(10, 2));
+        inFlight.start(barista, order(11, 6));
+
+        inFlight.finish(10L);
+        assertTrue(inFlight.isMaking(1L));
+        assertEquals(11L, inFlight.forBarista(1L).getOrder().getId());
+        assertEquals(1, inFlight.all().size());
+    }
+
+    @Test
+    public void testAllIsSoonestDueFirst() {
+        InFlightOrders inFlight = new InFlightOrders();
+        inFlight.start(barista(1), order(10, 6));
+        inFlight.start(barista(2), order(11, 1));
+        inFlight.start(barista(3), order(12, 4));
+
+        assertEquals(11L, inFlight.all().get(0).getOrder().getId());
+        assertEquals(10L, inFlight.all().get(2).getOrder().getId());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.coffee.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntakeRingTest {
+
+    @Test
+    public void testRejectsWhenFullAndReusesDrainedSlots() {
+        IntakeRing<Integer> ring = new IntakeRing<>(3);
+        assertEquals(4, ring.capacity(), "Rounded up to a power of two");
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, ring.drain(drained::add, 2));
+        assertEquals(List.of(0, 1), drained);
+        assertTrue(ring.offer(4));
+        assertTrue(ring.offer(5));
+        assertFalse(ring.offer(6));
+
+        drained.clear();
+        assertEquals(4, ring.drain(drained::add, 10));
+        assertEquals(List.of(2, 3, 4, 5), drained);
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void testConcurrentProducersLoseNothing() throws InterruptedException {
+        IntakeRing<Integer> ring = new IntakeRing<>(64);
+        int producers = 4;
+        int perProducer = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.yield(); // full: wait for the consumer, like a client retrying after 429
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        int[] lastPerProducer = new int[producers];
+        java.util.Arrays.fill(lastPerProducer, -1);
+        start.countDown();
+        while (seen.size() < producers * perProducer) {
+            ring.drain(value -> {
+                assertTrue(seen.add(value), "Delivered twice: " + value);
+                int producer = value / perProducer;
+                assertTrue(value > lastPerProducer[producer], "Reordered within one producer");
+                lastPerProducer[producer] = value;
+            }, 32);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, ring.size());
+    }
+}
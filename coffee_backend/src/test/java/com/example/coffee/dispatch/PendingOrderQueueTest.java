@@ -0,0 +1,129 @@
+package com.example.coffee.dispatch;
+
+import com.example.coffee.model.Order;
+import com.example.coffee.service.PriorityService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PendingOrderQueueTest {
+
+    private Order order(long id, double score) {
+        Order order = new Order();
+        order.setId(id);
+        order.setPriorityScore(score);
+        return order;
+    }
+
+    @Test
+    public void testPollReturnsHighestScoreFirst() {
+        PendingOrderQueue queue = new PendingOrderQueue();
+        queue.add(order(1, 10));
+        queue.add(order(2, 30));
+        queue.add(order(3, 20));
+
+        assertEquals(2L, queue.poll().getId());
+        assertEquals(3L, queue.poll().getId());
+        assertEquals(1L, queue.poll().getId());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testEqualScoresServedOldestFirst() {
+        PendingOrderQueue queue = new PendingOrderQueue();
+        queue.add(order(7, 50));
+        queue.add(order(3, 50));
+        queue.add(order(5, 50));
+
+        assertEquals(3L, queue.poll().getId());
+        assertEquals(5L, queue.poll().getId());
+        assertEquals(7L, queue.poll().getId());
+    }
+
+    @Test
+    public void testUpdateAndRemoveById() {
+        PendingOrderQueue queue = new PendingOrderQueue();
+        for (long id = 1; id <= 100; id++) {
+            queue.add(order(id, id));
+        }
+        queue.updateScore(1L, 1000); // lowest jumps to the top
+        queue.updateScore(100L, 0);  // highest drops to the bottom
+        assertNotNull(queue.remove(99L));
+        assertNull(queue.remove(99L));
+
+        assertEquals(1L, queue.poll().getId());
+        assertEquals(98L, queue.poll().getId());
+        assertEquals(97, queue.size());
+        assertFalse(queue.contains(99L));
+    }
+
+    @Test
+    public void testRescoreAllReordersQueue() {
+        PendingOrderQueue queue = new PendingOrderQueue();
+        for (long id = 1; id <= 10; id++) {
+            queue.add(order(id, id));
+        }
+        queue.rescoreAll(o -> -o.getId()); // invert the order
+
+        for (long id = 1; id <= 10; id++) {
+            assertEquals(id, queue.poll().getId());
+        }
+    }
+
+    @Test
+    public void testRescoreAllWithNewScoringReordersAndReschedules() {
+        Clock clock = Clock.fixed(Instant.parse("2024-01-01T08:00:00Z"), ZoneId.of("UTC"));
+        PriorityService scorer = new PriorityService(clock);
+        PendingOrderQueue queue = new PendingOrderQueue();
+        Order loyal = order(1, 0);
+        loyal.setArrivalTime(LocalDateTime.now(clock).minusMinutes(3));
+        loyal.setPrepTimeMinutes(6);
+        loyal.setLoyaltyMember(true);
+        Order quick = order(2, 0);
+        quick.setArrivalTime(LocalDateTime.now(clock).minusMinutes(3));
+        quick.setPrepTimeMinutes(4);
+        queue.add(loyal, scorer);
+        queue.add(quick, scorer);
+        assertEquals(1L, queue.peek().getId());
+
+        ScoringParameters parameters = new ScoringParameters();
+        parameters.setLoyaltyWeight(0);
+        scorer.setStrategy(ScoringStrategy.compile(parameters));
+        List<Order> changed = new ArrayList<>();
+        assertEquals(1, queue.rescoreAll(scorer, changed::add));
+
+        assertEquals(List.of(loyal), changed);
+        assertEquals(2L, queue.peek().getId());
+        // Still on the calendar: due again at the next minute boundary
+        assertEquals(0, queue.rescoreDue(LocalDateTime.now(clock), scorer));
+        PriorityService aMinuteLater = new PriorityService(Clock.offset(clock, Duration.ofMinutes(1)));
+        aMinuteLater.setStrategy(scorer.getStrategy());
+        assertEquals(2, queue.rescoreDue(LocalDateTime.now(clock).plusMinutes(1), aMinuteLater));
+    }
+
+    @Test
+    public void testPreScoredOrderKeepsItsScoreUntilItGoesStale() {
+        Clock clock = Clock.fixed(Instant.parse("2024-01-01T08:00:00Z"), ZoneId.of("UTC"));
+        PriorityService scorer = new PriorityService(clock);
+        PendingOrderQueue queue = new PendingOrderQueue();
+        Order order = order(1, 42); // scored by whoever created it
+        order.setArrivalTime(LocalDateTime.now(clock));
+        order.setPrepTimeMinutes(4);
+        LocalDateTime stale = LocalDateTime.now(clock).plusMinutes(1);
+        queue.add(order, stale);
+
+        assertEquals(42, queue.peek().getPriorityScore());
+        assertEquals(0, queue.rescoreDue(LocalDateTime.now(clock), scorer));
+        PriorityService aMinuteLater = new PriorityService(Clock.offset(clock, Duration.ofMinutes(1)));
+        assertEquals(1, queue.rescoreDue(stale, aMinuteLater));
+        assertEquals(aMinuteLater.calculatePriority(order), order.getPriorityScore());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.coffee.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoringStrategyTest {
+
+    // The production formula as it was written out before it was compiled into tables
+    private static double legacyScore(long wait, int prep, boolean loyal) {
+        double waitScore = Math.min((double) wait / 10 * 100, 100);
+        double complexityScore = Math.max(0, (10.0 - prep) / 10.0 * 100);
+        double loyaltyScore = loyal ? 100 : 0;
+        double urgencyScore = 0;
+        if (wait >= 8) urgencyScore = 100;
+        else if (wait > 5) urgencyScore = (wait - 5) * 20;
+        double total = waitScore * 0.40 + complexityScore * 0.25 + loyaltyScore * 0.10 + urgencyScore * 0.25;
+        if (wait > 8) total += 50;
+        return total;
+    }
+
+    @Test
+    public void testDefaultsMatchTheProductionFormula() {
+        ScoringStrategy strategy = ScoringStrategy.DEFAULT;
+        for (long wait = 0; wait <= 30; wait++) {
+            for (int prep = 0; prep <= 12; prep++) {
+                assertEquals(legacyScore(wait, prep, false), strategy.score(wait, prep, false), 1e-9, wait + "/" + prep);
+                assertEquals(legacyScore(wait, prep, true), strategy.score(wait, prep, true), 1e-9, wait + "/" + prep);
+            }
+        }
+        assertEquals(10, strategy.getSaturationMinutes());
+    }
+
+    @Test
+    public void testBatchMatchesSingleScores() {
+        ScoringParameters parameters = new ScoringParameters();
+        parameters.setLoyaltyWeight(0.30);
+        parameters.setUrgencyThresholdMinutes(12);
+        ScoringStrategy strategy = ScoringStrategy.compile(parameters);
+
+        int n = 500;
+        int[] waits = new int[n];
+        int[] preps = new int[n];
+        boolean[] loyal = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            waits[i] = i % 40 - 3; // includes negative waits (clock skew)
+            preps[i] = i % 13;
+            loyal[i] = i % 3 == 0;
+        }
+        double[] scores = new double[n];
+        strategy.scoreAll(n, waits, preps, loyal, scores);
+        for (int i = 0; i < n; i++) {
+            assertEquals(strategy.score(waits[i], preps[i], loyal[i]), scores[i]);
+        }
+        assertEquals(12, strategy.getSaturationMinutes());
+    }
+
+    @Test
+    public void testInvalidParametersAreRejected() {
+        ScoringParameters negative = new ScoringParameters();
+        negative.setWaitWeight(-1);
+        assertThrows(IllegalArgumentException.class, () -> ScoringStrategy.compile(negative));
+
+        ScoringParameters zeroCap = new ScoringParameters();
+        zeroCap.setWaitCapMinutes(0);
+        assertThrows(IllegalArgumentException.class, () -> ScoringStrategy.compile(zeroCap));
+
+        ScoringParameters notANumber = new ScoringParameters();
+        notANumber.setEmergencyBoost(Double.NaN);
+        assertThrows(IllegalArgumentException.class, () -> ScoringStrategy.compile(notANumber));
+    }
+
+    @Test
+    public void testCompiledStrategyIgnoresLaterChangesToItsParameters() {
+        ScoringParameters parameters = new ScoringParameters();
+        ScoringStrategy strategy = ScoringStrategy.compile(parameters);
+        double before = strategy.score(3, 2, true);
+
+        parameters.setLoyaltyWeight(1.0);
+        strategy.getParameters().setLoyaltyWeight(1.0);
+        assertEquals(before, strategy.score(3, 2, true));
+        assertEquals(0.10, strategy.getParameters().getLoyaltyWeight());
+    }
+}
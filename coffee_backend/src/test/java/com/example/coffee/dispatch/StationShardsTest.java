@@ -0,0 +1,56 @@
+package com.example.coffee.dispatch;
+
+import com.example.coffee.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StationShardsTest {
+
+    private Order order(long id, double score) {
+        Order order = new Order();
+        order.setId(id);
+        order.setPriorityScore(score);
+        return order;
+    }
+
+    @Test
+    public void testStationsHaveSeparateQueues() {
+        StationShards shards = new StationShards(1000, 0);
+        shards.forStation(1L).getQueue().add(order(1, 10));
+        shards.forStation(2L).getQueue().add(order(2, 20));
+
+        assertSame(shards.forStation(1L), shards.forStation(null), "No station means the default one");
+        assertEquals(1, shards.forStation(1L).getQueue().size());
+        assertEquals(2L, shards.forStation(2L).getQueue().peek().getId());
+        assertTrue(shards.get(3L).isEmpty());
+        assertSame(shards.forStation(2L), shards.get(2L).orElseThrow());
+        assertEquals(2, shards.all().size(), "Looking a station up doesn't create it");
+    }
+
+    @Test
+    public void testEachStationTicksOnItsOwnThread() throws InterruptedException {
+        StationShards shards = new StationShards(10, 0);
+        shards.forStation(1L);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch ticked = new CountDownLatch(2);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        try {
+            shards.start(shard -> {
+                threads.add(Thread.currentThread().getName());
+                if (seen.add(shard.getStationId())) ticked.countDown();
+            });
+            shards.forStation(2L); // created after start, starts right away
+            assertTrue(ticked.await(5, TimeUnit.SECONDS));
+        } finally {
+            shards.stop();
+        }
+        assertTrue(threads.contains("dispatch-station-1"));
+        assertTrue(threads.contains("dispatch-station-2"));
+    }
+}
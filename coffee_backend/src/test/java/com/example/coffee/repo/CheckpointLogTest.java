@@ -0,0 +1,180 @@
+package com.example.coffee.repo;
+
+import com.example.coffee.model.Barista;
+import com.example.coffee.model.Customer;
+import com.example.coffee.model.Order;
+import com.example.coffee.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckpointLogTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    @TempDir
+    Path dir;
+
+    private CheckpointLog open() {
+        CheckpointLog log = new CheckpointLog(dir.toString(), true);
+        log.open();
+        return log;
+    }
+
+    private Order order(long id, OrderStatus status, long version) {
+        Order order = new Order();
+        order.setId(id);
+        order.setCustomerName("c" + id);
+        order.setDrinkType("Latte");
+        order.setPrepTimeMinutes(4);
+        order.setArrivalTime(NOW);
+        order.setStatus(status);
+        order.setStationId(1L);
+        order.setVersion(version);
+        Customer customer = new Customer();
+        customer.setId(100 + id);
+        customer.setLoyaltyMember(id % 2 == 0);
+        order.setCustomer(customer);
+        return order;
+    }
+
+    private Barista barista(long id, long version) {
+        return new Barista(id, "Barista " + id, null, 3, 12, 1L, null, version);
+    }
+
+    @Test
+    public void testSnapshotPlusLogGivesTheLatestState() {
+        CheckpointLog first = open();
+        assertTrue(first.takeWarmState().isEmpty(), "Nothing to warm start from yet");
+        first.orderChanged(order(1, OrderStatus.PENDING, 0), true);
+        long through = first.rotate();
+        first.flushed(through);
+        first.writeSnapshot(through, List.of(barista(7, 2)), List.of(order(1, OrderStatus.PENDING, 0)));
+
+        Order started = order(1, OrderStatus.PROCESSING, 1);
+        started.setStartTime(NOW.plusMinutes(2));
+        started.setBaristaId(7L);
+        first.orderChanged(started, false);
+        first.orderChanged(order(2, OrderStatus.PENDING, 0), true);
+        first.orderChanged(order(3, OrderStatus.PENDING, 0), true);
+        first.orderChanged(order(3, OrderStatus.COMPLETED, 1), false);
+        first.flushed(first.sequence());
+        first.close();
+
+        CheckpointLog.WarmState state = open().takeWarmState().orElseThrow();
+        assertEquals(through, state.getThrough());
+        assertEquals(6, state.getReplayedRecords()); // four orders and two flush markers
+        assertEquals(1, state.getBaristas().size());
+        assertEquals(12, state.getBaristas().get(0).getTotalMinutesAssigned());
+        assertEquals(List.of(1L, 2L), state.getOrders().stream().map(Order::getId).toList(), "Finished orders drop out");
+
+        Order restored = state.getOrders().get(0);
+        assertEquals(OrderStatus.PROCESSING, restored.getStatus());
+        assertEquals(NOW.plusMinutes(2), restored.getStartTime());
+        assertEquals(7L, restored.getBaristaId());
+        assertEquals(101L, restored.getCustomer().getId());
+        assertTrue(state.getUnflushedOrders().isEmpty());
+    }
+
+    @Test
+    public void testChangesAfterTheLastFlushAreReportedUnflushed() {
+        CheckpointLog first = open();
+        long through = first.rotate();
+        first.writeSnapshot(through, List.of(barista(7, 0)), List.of());
+
+        first.orderChanged(order(1, OrderStatus.PENDING, 0), true);
+        first.orderChanged(order(1, OrderStatus.PROCESSING, 1), false);
+        first.flushed(first.sequence());
+        first.orderChanged(order(1, OrderStatus.COMPLETED, 2), false);
+        first.baristaChanged(barista(7, 1), false);
+        first.orderChanged(order(2, OrderStatus.PENDING, 0), true);
+        first.close();
+
+        CheckpointLog.WarmState state = open().takeWarmState().orElseThrow();
+        assertEquals(List.of(2L), state.getOrders().stream().map(Order::getId).toList());
+        assertEquals(1, state.getUnflushedOrders().size(), "The INSERTed order is already in the DB");
+        assertEquals(OrderStatus.COMPLETED, state.getUnflushedOrders().get(0).getStatus());
+        assertEquals(2, state.getUnflushedOrders().get(0).getVersion());
+        assertEquals(1, state.getUnflushedBaristas().size());
+        assertSame(state.getBaristas().get(0), state.getUnflushedBaristas().get(0));
+    }
+
+    @Test
+    public void testTornTailIsIgnored() throws IOException {
+        CheckpointLog first = open();
+        long through = first.rotate();
+        first.writeSnapshot(through, List.of(), List.of());
+        first.orderChanged(order(1, OrderStatus.PENDING, 0), true);
+        first.orderChanged(order(2, OrderStatus.PENDING, 0), true);
+        first.close();
+
+        Path log = logFiles().get(0);
+        byte[] bytes = Files.readAllBytes(log);
+        Files.write(log, java.util.Arrays.copyOf(bytes, bytes.length - 5), StandardOpenOption.TRUNCATE_EXISTING);
+
+        CheckpointLog second = open();
+        CheckpointLog.WarmState state = second.takeWarmState().orElseThrow();
+        assertEquals(List.of(1L), state.getOrders().stream().map(Order::getId).toList());
+        assertEquals(through + 1, second.sequence(), "The next record continues after the last good one");
+    }
+
+    @Test
+    public void testNoSnapshotMeansColdStartAndDiscardsTheLogs() throws IOException {
+        CheckpointLog first = open();
+        first.orderChanged(order(1, OrderStatus.PENDING, 0), true);
+        first.close();
+
+        CheckpointLog second = open();
+        assertTrue(second.takeWarmState().isEmpty());
+        assertEquals(1, logFiles().size(), "Only the new, empty log is left");
+        assertEquals(0, Files.size(logFiles().get(0)));
+    }
+
+    @Test
+    public void testRotateWaitsForACreatedOrderToBeBothQueuedAndLogged() throws InterruptedException {
+        CheckpointLog log = open();
+        AtomicLong through = new AtomicLong(-1);
+        Thread checkpoint = new Thread(() -> through.set(log.rotate()));
+        log.orderCreated(order(1, OrderStatus.PENDING, 0), () -> {
+            // A checkpoint starting while the order is being queued must not rotate in between
+            checkpoint.start();
+            try {
+                checkpoint.join(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertTrue(checkpoint.isAlive());
+        });
+        checkpoint.join();
+        assertEquals(1, log.sequence());
+        assertEquals(1, through.get(), "The snapshot that sees the queued order also covers its record");
+        log.close();
+    }
+
+    @Test
+    public void testDisabledLogRecordsNothing() throws IOException {
+        CheckpointLog log = CheckpointLog.disabled();
+        log.open();
+        log.orderChanged(order(1, OrderStatus.PENDING, 0), true);
+        assertFalse(log.isEnabled());
+        assertEquals(0, log.sequence());
+        assertTrue(log.takeWarmState().isEmpty());
+        assertTrue(logFiles().isEmpty());
+    }
+
+    private List<Path> logFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.coffee.repo;
+
+import com.example.coffee.model.Order;
+import com.example.coffee.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderJournalTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    @TempDir
+    Path dir;
+
+    private OrderJournal open(int segmentEvents) {
+        OrderJournal journal = new OrderJournal(dir.toString(), true, segmentEvents);
+        journal.open();
+        return journal;
+    }
+
+    private Order order(long id) {
+        Order order = new Order();
+        order.setId(id);
+        order.setDrinkType("Cappuccino");
+        order.setPrepTimeMinutes(4);
+        order.setArrivalTime(NOW.plusSeconds(id));
+        order.setStationId(2L);
+        order.setStatus(OrderStatus.PENDING);
+        return order;
+    }
+
+    private List<OrderJournal.Event> readAll() throws IOException {
+        List<OrderJournal.Event> events = new ArrayList<>();
+        OrderJournal.read(dir, events::add);
+        return events;
+    }
+
+    @Test
+    public void testLifecycleRoundTrip() throws IOException {
+        OrderJournal journal = open(16);
+        Order order = order(7);
+        order.setLoyaltyMember(true);
+        journal.record(OrderJournal.EventType.CREATED, order);
+        order.setStartTime(NOW.plusMinutes(1));
+        order.setBaristaId(3L);
+        journal.record(OrderJournal.EventType.STARTED, order);
+        order.setEndTime(NOW.plusMinutes(5));
+        journal.record(OrderJournal.EventType.COMPLETED, order);
+        journal.close();
+
+        List<OrderJournal.Event> events = readAll();
+        assertEquals(3, events.size());
+        assertEquals(OrderJournal.EventType.CREATED, events.get(0).getType());
+        assertNull(events.get(0).getBaristaId());
+        assertEquals(NOW.plusSeconds(7), events.get(0).getTime());
+
+        OrderJournal.Event completed = events.get(2);
+        assertEquals(OrderJournal.EventType.COMPLETED, completed.getType());
+        assertEquals(7L, completed.getOrderId());
+        assertEquals(NOW.plusMinutes(5), completed.getTime());
+        assertEquals(NOW.plusSeconds(7), completed.getArrivalTime());
+        assertEquals(3L, completed.getBaristaId());
+        assertEquals(2L, completed.getStationId());
+        assertEquals(4, completed.getPrepMinutes());
+        assertTrue(completed.isLoyaltyMember());
+        assertEquals("Cappuccino", completed.getDrinkType());
+    }
+
+    @Test
+    public void testSegmentsRollAndReopeningContinuesAfterTheLastEvent() throws IOException {
+        OrderJournal first = open(4);
+        for (long id = 1; id <= 6; id++) first.record(OrderJournal.EventType.CREATED, order(id));
+        first.close();
+
+        OrderJournal second = open(4);
+        assertEquals(6, second.size());
+        for (long id = 7; id <= 9; id++) second.record(OrderJournal.EventType.CREATED, order(id));
+        second.close();
+
+        assertEquals(3, segmentFiles().size());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L),
+                readAll().stream().map(OrderJournal.Event::getOrderId).toList());
+    }
+
+    @Test
+    public void testReadingStopsAtATornRecord() throws IOException {
+        OrderJournal journal = open(8);
+        for (long id = 1; id <= 3; id++) journal.record(OrderJournal.EventType.CREATED, order(id));
+        journal.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(segmentFiles().get(0).toFile(), "rw")) {
+            file.seek(2 * OrderJournal.RECORD_BYTES + 5);
+            file.write(0x7f);
+        }
+        assertEquals(List.of(1L, 2L), readAll().stream().map(OrderJournal.Event::getOrderId).toList());
+
+        // A restart overwrites the torn record instead of appending after it
+        OrderJournal reopened = open(8);
+        assertEquals(2, reopened.size());
+        reopened.record(OrderJournal.EventType.CREATED, order(4));
+        reopened.close();
+        assertEquals(List.of(1L, 2L, 4L), readAll().stream().map(OrderJournal.Event::getOrderId).toList());
+    }
+
+    @Test
+    public void testDisabledJournalWritesNothing() throws IOException {
+        OrderJournal journal = OrderJournal.disabled();
+        journal.open();
+        journal.record(OrderJournal.EventType.CREATED, order(1));
+        assertFalse(journal.isEnabled());
+        assertEquals(0, segmentFiles().size());
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.coffee.repo;
+
+import com.example.coffee.model.Barista;
+import com.example.coffee.model.Order;
+import com.example.coffee.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WriteBehindBufferTest {
+
+    // Records batchUpdate calls instead of talking to a DB; rows whose id is in staleIds match nothing,
+    // and rows with an entry in versions only match that version (and move it to the one written)
+    static class RecordingJdbcTemplate extends JdbcTemplate {
+        final Map<String, List<Object[]>> batches = new LinkedHashMap<>();
+        final Set<Long> staleIds = new HashSet<>();
+        final Map<Long, Long> versions = new HashMap<>();
+        boolean fail;
+        Runnable duringBatch;
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            if (fail) throw new IllegalStateException("db down");
+            if (duringBatch != null) duringBatch.run();
+            batches.computeIfAbsent(sql, k -> new ArrayList<>()).addAll(batchArgs);
+            int[] counts = new int[batchArgs.size()];
+            for (int i = 0; i < counts.length; i++) {
+                Object[] row = batchArgs.get(i);
+                boolean versioned = sql.endsWith("AND version = ?");
+                Object id = row[versioned ? row.length - 2 : row.length - 1];
+                counts[i] = staleIds.contains(id) ? 0 : 1;
+                if (versioned && versions.containsKey(id)) {
+                    if (versions.get(id).equals(row[row.length - 1])) {
+                        versions.put((Long) id, (Long) row[row.length - 3]);
+                    } else {
+                        counts[i] = 0;
+                    }
+                }
+            }
+            return counts;
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler handler, Object... args) throws DataAccessException {
+            for (Object id : args) {
+                if (!versions.containsKey(id)) continue;
+                ResultSet rs = mock(ResultSet.class);
+                try {
+                    when(rs.getLong(1)).thenReturn((Long) id);
+                    when(rs.getLong(2)).thenReturn(versions.get(id));
+                    handler.processRow(rs);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    static class NoopTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+
+    private final RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+    private final WriteBehindBuffer buffer = new WriteBehindBuffer(jdbc, new TransactionTemplate(new NoopTransactionManager()), CheckpointLog.disabled());
+
+    private Order order(long id) {
+        Order order = new Order();
+        order.setId(id);
+        order.setStatus(OrderStatus.PENDING);
+        order.setPriorityScore(10);
+        return order;
+    }
+
+    @Test
+    public void testCoalescesToLatestStatePerRow() {
+        Order order = order(1);
+        buffer.scoreChanged(order);
+        order.setStatus(OrderStatus.PROCESSING);
+        order.setStartTime(LocalDateTime.of(2024, 1, 1, 8, 0));
+        buffer.orderChanged(order);
+        order.setStatus(OrderStatus.COMPLETED);
+        buffer.orderChanged(order);
+        buffer.scoreChanged(order(2));
+
+        Barista barista = new Barista(7L, "Barista 1", null, 1, 4, null, null, 0);
+        buffer.baristaChanged(barista);
+        barista.setTotalOrdersCompleted(2);
+        buffer.baristaChanged(barista);
+
+        assertEquals(3, buffer.flush()); // one row each for order 1, order 2 and the barista
+        List<Object[]> orders = jdbc.batches.get(WriteBehindBuffer.UPDATE_ORDER);
+        assertEquals(1, orders.size());
+        assertEquals("COMPLETED", orders.get(0)[0]);
+        // The score of order 1 rode along with its full row, order 2 only got the narrow update
+        List<Object[]> scores = jdbc.batches.get(WriteBehindBuffer.UPDATE_ORDER_SCORE);
+        assertEquals(1, scores.size());
+        assertEquals(2L, scores.get(0)[1]);
+        assertEquals(2, jdbc.batches.get(WriteBehindBuffer.UPDATE_BARISTA).get(0)[1]);
+
+        assertEquals(0, buffer.flush(), "Nothing left to write");
+    }
+
+    @Test
+    public void testCoalescedChangesStartFromTheFlushedVersion() {
+        Order order = order(1);
+        order.setVersion(3);
+        buffer.orderChanged(order);
+        buffer.orderChanged(order);
+        assertEquals(4, order.getVersion(), "Changes that reach the DB as one write bump the version once");
+
+        buffer.flush();
+        Object[] row = jdbc.batches.get(WriteBehindBuffer.UPDATE_ORDER).get(0);
+        assertEquals(4L, row[6]); // new version
+        assertEquals(3L, row[8]); // expected: what the DB had before both changes
+
+        buffer.orderChanged(order);
+        buffer.flush();
+        assertEquals(4L, jdbc.batches.get(WriteBehindBuffer.UPDATE_ORDER).get(1)[8], "The next write starts from the flushed version");
+    }
+
+    @Test
+    public void testStaleRowIsDroppedAsConflict() {
+        Order order = order(1);
+        buffer.orderChanged(order);
+        buffer.orderChanged(order(2));
+        jdbc.staleIds.add(1L); // someone else moved order 1 on
+
+        assertEquals(2, buffer.flush());
+        assertEquals(1, buffer.getVersionConflicts());
+        assertEquals(0, buffer.pendingCount(), "A stale row is not retried");
+    }
+
+    @Test
+    public void testWritesResumeAfterAConflict() {
+        Order order = order(1);
+        Barista barista = new Barista(7L, "Barista 1", null, 0, 0, null, null, 0);
+        jdbc.versions.put(1L, 5L); // both rows were moved on behind the buffer's back
+        jdbc.versions.put(7L, 2L);
+
+        buffer.orderChanged(order);
+        buffer.baristaChanged(barista);
+        buffer.flush();
+        assertEquals(2, buffer.getVersionConflicts());
+
+        // Keeps changing: every later write lands, on top of the version the DB really had
+        for (int i = 0; i < 3; i++) {
+            order.setTimesSkipped(i);
+            buffer.orderChanged(order);
+            barista.setTotalOrdersCompleted(i);
+            buffer.baristaChanged(barista);
+            buffer.flush();
+        }
+        assertEquals(2, buffer.getVersionConflicts(), "one conflict costs one write");
+        assertEquals(8L, jdbc.versions.get(1L));
+        assertEquals(8L, order.getVersion());
+        assertEquals(5L, jdbc.versions.get(7L));
+        assertEquals(5L, barista.getVersion());
+    }
+
+    @Test
+    public void testChangeMarkedDuringAConflictingFlushIsRebased() {
+        Order order = order(1);
+        jdbc.versions.put(1L, 5L);
+        buffer.orderChanged(order);
+        // The flush has taken the rows when the next change comes in
+        jdbc.duringBatch = () -> {
+            jdbc.duringBatch = null;
+            order.setTimesSkipped(1);
+            buffer.orderChanged(order);
+        };
+        buffer.flush();
+        assertEquals(1, buffer.getVersionConflicts());
+
+        buffer.flush();
+        assertEquals(1, buffer.getVersionConflicts(), "the change marked meanwhile still lands");
+        assertEquals(order.getVersion(), jdbc.versions.get(1L));
+    }
+
+    @Test
+    public void testFailedFlushIsRetried() {
+        buffer.orderChanged(order(1));
+        jdbc.fail = true;
+        assertEquals(0, buffer.flush());
+        assertEquals(1, buffer.pendingCount());
+
+        Order order = order(1);
+        order.setVersion(1); // marked again while the DB was down
+        buffer.orderChanged(order);
+        jdbc.fail = false;
+        assertEquals(1, buffer.flush());
+        assertEquals(0L, jdbc.batches.get(WriteBehindBuffer.UPDATE_ORDER).get(0)[8], "Still starts from the version before the failed flush");
+        assertTrue(jdbc.batches.containsKey(WriteBehindBuffer.UPDATE_ORDER));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.coffee.service;
+
+import com.example.coffee.model.Customer;
+import com.example.coffee.repo.CustomerRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CustomerServiceTest {
+
+    private final CustomerRepository repository = mock(CustomerRepository.class);
+    private final CustomerService service = new CustomerService(repository, 100, 30);
+
+    @Test
+    public void testRepeatLookupsAreServedFromCache() {
+        Customer john = new Customer(1L, "John Doe", "john@example.com", true);
+        when(repository.findByEmail("john@example.com")).thenReturn(Optional.of(john));
+
+        assertTrue(service.findByEmail("john@example.com").isPresent());
+        assertTrue(service.findByEmail("john@example.com").isPresent());
+        // The email lookup also filled the id cache
+        assertTrue(service.findById(1L).get().isLoyaltyMember());
+
+        verify(repository, times(1)).findByEmail("john@example.com");
+        verify(repository, times(0)).findById(1L);
+        assertEquals(2, service.getCacheStats().getHits());
+    }
+
+    @Test
+    public void testCreateInvalidatesStaleEntries() {
+        Customer before = new Customer(1L, "John Doe", "john@example.com", false);
+        Customer after = new Customer(1L, "John Doe", "john@example.com", true);
+        when(repository.findById(1L)).thenReturn(Optional.of(before), Optional.of(after));
+        when(repository.save(after)).thenReturn(after);
+
+        assertFalse(service.findById(1L).get().isLoyaltyMember());
+        service.createCustomer(after);
+        assertTrue(service.findById(1L).get().isLoyaltyMember());
+        verify(repository, times(2)).findById(1L);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.coffee.service;
+
+import com.example.coffee.model.Barista;
+import com.example.coffee.model.Order;
+import com.example.coffee.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LiveBoardServiceTest {
+
+    private Order order(long id, OrderStatus status) {
+        Order order = new Order();
+        order.setId(id);
+        order.setStatus(status);
+        return order;
+    }
+
+    @Test
+    public void testSnapshotHoldsOnlyActiveOrders() {
+        LiveBoardService board = new LiveBoardService();
+        board.orderChanged(order(1, OrderStatus.PENDING));
+        board.orderChanged(order(2, OrderStatus.PENDING));
+        board.orderChanged(order(1, OrderStatus.PROCESSING));
+        board.orderChanged(order(2, OrderStatus.CANCELLED));
+        board.orderChanged(order(3, OrderStatus.PROCESSING));
+        board.orderChanged(order(3, OrderStatus.COMPLETED));
+        board.baristaChanged(new Barista(1L, "Barista 1", null, 0, 0, null, null, 0));
+        board.baristaChanged(new Barista(1L, "Barista 1", null, 1, 4, null, null, 0));
+
+        LiveBoardService.BoardSnapshot snapshot = board.snapshot();
+        assertEquals(1, snapshot.getOrders().size());
+        assertEquals(1L, snapshot.getOrders().get(0).getId());
+        assertEquals(OrderStatus.PROCESSING, snapshot.getOrders().get(0).getStatus());
+        assertEquals(1, snapshot.getBaristas().size());
+        assertEquals(1, snapshot.getBaristas().get(0).getTotalOrdersCompleted());
+        board.stop();
+    }
+
+    @Test
+    public void testBoardKeepsTheStatePublished() {
+        LiveBoardService board = new LiveBoardService();
+        Order order = order(1, OrderStatus.PENDING);
+        Barista barista = new Barista(1L, "Barista 1", null, 0, 0, null, null, 0);
+        order.setBaristaId(1L);
+        order.setStatus(OrderStatus.PROCESSING);
+        board.orderChanged(order);
+        barista.setCurrentOrderId(1L);
+        board.baristaChanged(barista);
+
+        // Changed again on a station thread, not published yet
+        order.setStatus(OrderStatus.COMPLETED);
+        barista.setCurrentOrderId(null);
+
+        LiveBoardService.BoardSnapshot snapshot = board.snapshot();
+        assertEquals(OrderStatus.PROCESSING, snapshot.getOrders().get(0).getStatus());
+        assertEquals(1L, snapshot.getOrders().get(0).getBaristaId());
+        assertEquals(1L, snapshot.getBaristas().get(0).getCurrentOrderId());
+        board.stop();
+    }
+}
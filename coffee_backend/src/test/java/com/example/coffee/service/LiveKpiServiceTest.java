@@ -0,0 +1,86 @@
+package com.example.coffee.service;
+
+import com.example.coffee.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LiveKpiServiceTest {
+
+    // Clock the test moves forward
+    static class MovingClock extends Clock {
+        Instant now = Instant.parse("2024-01-01T09:00:30Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private final MovingClock clock = new MovingClock();
+    private final LiveKpiService kpis = new LiveKpiService(clock);
+
+    // An order that waited waitSeconds and was made in serviceSeconds, finishing now
+    private void serve(long baristaId, int waitSeconds, int serviceSeconds) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Order order = new Order();
+        order.setBaristaId(baristaId);
+        order.setEndTime(now);
+        order.setStartTime(now.minusSeconds(serviceSeconds));
+        order.setArrivalTime(order.getStartTime().minusSeconds(waitSeconds));
+        kpis.orderArrived();
+        kpis.orderStarted(order);
+        kpis.orderCompleted(order);
+    }
+
+    @Test
+    public void testWindowsAggregateAndExpire() {
+        serve(1, 60, 120);
+        serve(1, 9 * 60, 240); // a complaint
+        clock.now = clock.now.plusSeconds(10 * 60);
+        serve(2, 30, 60);
+        kpis.orderCancelled();
+
+        LiveKpiService.WindowKpis fiveMinutes = kpis.snapshot().getWindows().get(0);
+        assertEquals(1, fiveMinutes.getCompleted());
+        assertEquals(1, fiveMinutes.getCancelled());
+        assertEquals(0.5, fiveMinutes.getP50WaitMinutes(), 1e-9);
+
+        LiveKpiService.WindowKpis fifteenMinutes = kpis.snapshot().getWindows().get(1);
+        assertEquals(3, fifteenMinutes.getCompleted());
+        assertEquals(2, fifteenMinutes.getCompletedByBarista().get(1L));
+        assertEquals(1.0 / 3, fifteenMinutes.getComplaintRate(), 1e-9);
+        assertEquals(9.0, fifteenMinutes.getP99WaitMinutes(), 1e-9);
+        assertEquals(0, fifteenMinutes.getTimeoutRate(), 1e-9);
+
+        clock.now = clock.now.plusSeconds(55 * 60);
+        LiveKpiService.WindowKpis hour = kpis.snapshot().getWindows().get(2);
+        assertEquals(1, hour.getCompleted(), "The first two orders left the hour window");
+        assertEquals(0, hour.getComplaintRate(), 1e-9);
+        assertNull(hour.getCompletedByBarista().get(1L));
+    }
+
+    @Test
+    public void testLongIdleResetsEverything() {
+        serve(1, 60, 120);
+        clock.now = clock.now.plusSeconds(3 * 3600);
+        assertEquals(0, kpis.snapshot().getWindows().get(2).getArrivals());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.coffee.service;
+
+import com.example.coffee.model.Customer;
+import com.example.coffee.model.Order;
+import com.example.coffee.model.OrderStatus;
+import com.example.coffee.model.OrderSummary;
+import com.example.coffee.repo.CustomerRepository;
+import com.example.coffee.repo.OrderHistoryRepository;
+import com.example.coffee.repo.OrderQueryRepository;
+import com.example.coffee.repo.OrderRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the archive SQL against an in-memory database built from the entities
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+public class OrderArchiveServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderHistoryRepository orderHistoryRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManager entityManager;
+
+    private OrderArchiveService archive(int batchSize) {
+        Clock clock = Clock.fixed(NOW.atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+        return new OrderArchiveService(jdbcTemplate, transactionTemplate, clock, 10, batchSize);
+    }
+
+    private Long order(OrderStatus status, LocalDateTime endTime, Customer customer) {
+        Order order = new Order();
+        order.setCustomerName("C");
+        order.setDrinkType("Latte");
+        order.setPrepTimeMinutes(4);
+        order.setArrivalTime(endTime != null ? endTime.minusMinutes(6) : NOW.minusMinutes(1));
+        order.setEndTime(endTime);
+        order.setStatus(status);
+        order.setCustomer(customer);
+        return orderRepository.saveAndFlush(order).getId();
+    }
+
+    private Set<Long> ids(String table) {
+        return jdbcTemplate.getJdbcTemplate().queryForList("SELECT id FROM " + table, Long.class)
+                .stream().collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testOnlyOldFinishedOrdersMove() {
+        Customer loyal = customerRepository.saveAndFlush(new Customer(null, "L", "loyal@example.com", true));
+        Long pending = order(OrderStatus.PENDING, null, null);
+        Long processing = order(OrderStatus.PROCESSING, null, null);
+        Long recent = order(OrderStatus.COMPLETED, NOW.minusMinutes(2), null);
+        Long done1 = order(OrderStatus.COMPLETED, NOW.minusMinutes(30), loyal);
+        Long done2 = order(OrderStatus.COMPLETED, NOW.minusMinutes(11), null);
+        Long done3 = order(OrderStatus.COMPLETED, NOW.minusHours(5), null);
+        Long cancelled = order(OrderStatus.CANCELLED, NOW.minusMinutes(20), null);
+
+        // Batches of two: the four old finished orders take two full batches and an empty one
+        assertEquals(4, archive(2).archiveFinishedOrders());
+        entityManager.clear();
+
+        assertEquals(Set.of(pending, processing, recent), ids("orders"));
+        assertEquals(Set.of(done1, done2, done3, cancelled), ids("order_history"));
+        assertEquals(0, archive(2).archiveFinishedOrders(), "nothing left old enough");
+    }
+
+    @Test
+    public void testArchivedOrdersStayQueryable() {
+        Customer loyal = customerRepository.saveAndFlush(new Customer(null, "L", "loyal@example.com", true));
+        Long done = order(OrderStatus.COMPLETED, NOW.minusMinutes(30), loyal);
+        Long cancelled = order(OrderStatus.CANCELLED, NOW.minusMinutes(30), null);
+
+        assertEquals(2, archive(1000).archiveFinishedOrders());
+        entityManager.clear();
+
+        assertTrue(orderRepository.findById(done).isEmpty(), "copied and deleted, never both");
+        OrderQueryRepository.OrderQuery query = new OrderQueryRepository.OrderQuery();
+        query.setStatuses(List.of(OrderStatus.COMPLETED));
+        List<OrderSummary> history = orderHistoryRepository.findHistorySummaries(query);
+        assertEquals(1, history.size());
+        OrderSummary summary = history.get(0);
+        assertEquals(done, summary.getId());
+        assertEquals(NOW.minusMinutes(30), summary.getEndTime());
+        assertEquals("Latte", summary.getDrinkType());
+        assertTrue(summary.isLoyaltyMember(), "loyalty carried over from the customer");
+
+        query.setStatuses(null);
+        assertEquals(Set.of(done, cancelled), orderHistoryRepository.findHistorySummaries(query).stream()
+                .map(OrderSummary::getId).collect(Collectors.toSet()));
+    }
+}
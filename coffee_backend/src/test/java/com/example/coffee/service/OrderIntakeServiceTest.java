@@ -0,0 +1,55 @@
+package com.example.coffee.service;
+
+import com.example.coffee.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrderIntakeServiceTest {
+
+    private Order order(String drink) {
+        Order order = new Order();
+        order.setDrinkType(drink);
+        return order;
+    }
+
+    @Test
+    public void testBadOrderOnlyFailsItself() throws InterruptedException {
+        // Any batch holding the "Bad" order fails, as a constraint violation would
+        OrderService orderService = mock(OrderService.class);
+        AtomicLong ids = new AtomicLong();
+        when(orderService.createOrders(anyList())).thenAnswer(call -> {
+            List<Order> batch = call.getArgument(0);
+            if (batch.stream().anyMatch(o -> o.getDrinkType().equals("Bad"))) throw new IllegalStateException("rejected");
+            batch.forEach(o -> o.setId(ids.incrementAndGet()));
+            return batch;
+        });
+        OrderIntakeService intake = new OrderIntakeService(orderService, Clock.systemDefaultZone(), 64, 16);
+
+        List<String> tickets = new ArrayList<>();
+        for (String drink : List.of("Latte", "Bad", "Espresso", "Tea")) {
+            tickets.add(intake.submit(order(drink)).orElseThrow().getTicket());
+        }
+        intake.start(); // all four go in the first batch
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (intake.findByTicket(tickets.get(3)).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        intake.stop();
+
+        assertTrue(intake.findByTicket(tickets.get(0)).isPresent());
+        assertTrue(intake.findByTicket(tickets.get(2)).isPresent());
+        assertTrue(intake.findByTicket(tickets.get(3)).isPresent());
+        assertTrue(intake.findByTicket(tickets.get(1)).isEmpty());
+        assertTrue(intake.hasFailed(tickets.get(1)));
+        assertFalse(intake.hasFailed(tickets.get(0)));
+    }
+}
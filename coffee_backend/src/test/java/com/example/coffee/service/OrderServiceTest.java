@@ -0,0 +1,30 @@
+package com.example.coffee.service;
+
+import com.example.coffee.repo.OrderQueryRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OrderServiceTest {
+
+    @Test
+    public void testCursorRoundTrip() {
+        LocalDateTime arrival = LocalDateTime.of(2024, 1, 1, 8, 30, 15, 123_456_000);
+        String cursor = OrderService.encodeCursor(arrival, 42L);
+
+        OrderQueryRepository.OrderQuery query = new OrderQueryRepository.OrderQuery();
+        OrderService.decodeCursor(cursor, query);
+        assertEquals(arrival, query.getAfterArrival());
+        assertEquals(42L, query.getAfterId());
+    }
+
+    @Test
+    public void testGarbageCursorIsRejected() {
+        OrderQueryRepository.OrderQuery query = new OrderQueryRepository.OrderQuery();
+        assertThrows(IllegalArgumentException.class, () -> OrderService.decodeCursor("not a cursor", query));
+        assertThrows(IllegalArgumentException.class, () -> OrderService.decodeCursor("bm9waXBl", query)); // "nopipe"
+    }
+}
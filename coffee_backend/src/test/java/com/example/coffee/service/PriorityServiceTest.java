@@ -1,5 +1,7 @@
 package com.example.coffee.service;
 
+import com.example.coffee.dispatch.ScoringParameters;
+import com.example.coffee.dispatch.ScoringStrategy;
 import com.example.coffee.model.Order;
 import org.junit.jupiter.api.Test;
 import java.time.LocalDateTime;
@@ -54,4 +56,56 @@ public class PriorityServiceTest {
          
          assertTrue(priorityService.calculatePriority(loyal) > priorityService.calculatePriority(normal));
     }
+
+    @Test
+    public void testScoreOnlyChangesAtReportedBoundaries() {
+        for (int seconds = 0; seconds <= 15 * 60; seconds += 15) {
+            Order order = new Order();
+            order.setArrivalTime(LocalDateTime.now(clock).minusSeconds(seconds));
+            order.setPrepTimeMinutes(4);
+
+            LocalDateTime next = priorityService.nextScoreChange(order);
+            double score = priorityService.calculatePriority(order);
+            if (next == null) {
+                // Saturated: waiting longer never changes the score
+                Order later = new Order();
+                later.setArrivalTime(order.getArrivalTime().minusHours(1));
+                later.setPrepTimeMinutes(4);
+                assertEquals(score, priorityService.calculatePriority(later));
+                assertTrue(seconds >= 10 * 60);
+                continue;
+            }
+            assertTrue(next.isAfter(LocalDateTime.now(clock)));
+
+            // Just before the boundary the score is unchanged, at the boundary it differs
+            long untilNext = java.time.Duration.between(LocalDateTime.now(clock), next).getSeconds();
+            Order justBefore = new Order();
+            justBefore.setArrivalTime(order.getArrivalTime().minusSeconds(untilNext - 1));
+            justBefore.setPrepTimeMinutes(4);
+            Order atBoundary = new Order();
+            atBoundary.setArrivalTime(order.getArrivalTime().minusSeconds(untilNext));
+            atBoundary.setPrepTimeMinutes(4);
+            assertEquals(score, priorityService.calculatePriority(justBefore));
+            assertNotEquals(score, priorityService.calculatePriority(atBoundary));
+        }
+    }
+
+    @Test
+    public void testSwappedStrategyAppliesToTheNextScore() {
+        PriorityService service = new PriorityService(clock);
+        Order loyal = new Order();
+        loyal.setArrivalTime(LocalDateTime.now(clock).minusMinutes(12));
+        loyal.setPrepTimeMinutes(2);
+        loyal.setLoyaltyMember(true);
+        double before = service.calculatePriority(loyal);
+        assertNull(service.nextScoreChange(loyal)); // saturated at 10 minutes
+
+        ScoringParameters parameters = new ScoringParameters();
+        parameters.setLoyaltyWeight(0);
+        parameters.setWaitCapMinutes(15);
+        service.setStrategy(ScoringStrategy.compile(parameters));
+
+        assertTrue(service.calculatePriority(loyal) < before);
+        assertEquals(loyal.getArrivalTime().plusMinutes(13), service.nextScoreChange(loyal));
+    }
 }
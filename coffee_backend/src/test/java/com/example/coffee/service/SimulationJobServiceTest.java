@@ -0,0 +1,89 @@
+package com.example.coffee.service;
+
+import com.example.coffee.dispatch.AssignmentMode;
+import com.example.coffee.repo.OrderJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Clock;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulationJobServiceTest {
+
+    private final PriorityService priorityService = new PriorityService(Clock.systemDefaultZone());
+    private final SimulationJobService jobService = new SimulationJobService(
+            new SimulationService(priorityService, OrderJournal.disabled()), new StaffingService(priorityService),
+            1, 1, 2, new StandardEnvironment());
+
+    @AfterEach
+    public void shutdown() {
+        jobService.shutdown();
+    }
+
+    private static void awaitFinished(SimulationJobService.SimulationJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (!job.isFinished()) {
+            assertTrue(System.nanoTime() < deadline, "job did not finish");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testStuckSubscriberDoesNotHoldUpTheSweep() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        // Never returns from its first send until released, like a client that stopped reading
+        SseEmitter stuck = new SseEmitter(0L) {
+            @Override
+            public void send(SseEventBuilder builder) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        int scenarios = SimulationJobService.RECENT_REPORTS + 44;
+        SimulationJobService.SimulationJob job = jobService.submit(scenarios, 3L, AssignmentMode.BALANCED);
+        job.subscribe(stuck);
+
+        awaitFinished(job);
+        release.countDown();
+
+        assertEquals(SimulationJobService.JobStatus.COMPLETED, job.getStatus());
+        assertEquals(scenarios, job.getCompletedScenarios());
+        assertNotNull(job.getSummary());
+    }
+
+    @Test
+    public void testLateSubscriberGetsOnlyTheRecentReports() throws Exception {
+        int scenarios = SimulationJobService.RECENT_REPORTS + 44;
+        SimulationJobService.SimulationJob job = jobService.submit(scenarios, 4L, AssignmentMode.BALANCED);
+        awaitFinished(job);
+
+        AtomicInteger sent = new AtomicInteger();
+        CountDownLatch completed = new CountDownLatch(1);
+        SseEmitter late = new SseEmitter(0L) {
+            @Override
+            public void send(SseEventBuilder builder) {
+                sent.incrementAndGet();
+            }
+
+            @Override
+            public void complete() {
+                completed.countDown();
+            }
+        };
+        job.subscribe(late);
+
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        // The recent reports, then the status and the summary
+        assertEquals(SimulationJobService.RECENT_REPORTS + 2, sent.get());
+        assertEquals(scenarios, job.getCompletedScenarios());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.coffee.service;
+
+import com.example.coffee.dispatch.AssignmentMode;
+import com.example.coffee.model.Order;
+import com.example.coffee.repo.OrderJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulationServiceTest {
+
+    private final SimulationService simulationService = new SimulationService(new PriorityService(Clock.systemDefaultZone()), OrderJournal.disabled());
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    public void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testSameSeedGivesSameSummary() {
+        SimulationService.SimulationSummary first = simulationService.runScenarios(24, 7L, pool);
+        // Different parallelism must not change the result
+        ForkJoinPool three = new ForkJoinPool(3);
+        SimulationService.SimulationSummary second;
+        try {
+            second = simulationService.runScenarios(24, 7L, three);
+        } finally {
+            three.shutdownNow();
+        }
+
+        assertEquals(first, second);
+        assertEquals(24, first.getScenarios());
+        assertTrue(first.getTotalOrders() >= 24 * 200);
+    }
+
+    @Test
+    public void testDifferentSeedsDiffer() {
+        assertNotEquals(simulationService.runScenarios(8, 1L, pool), simulationService.runScenarios(8, 2L, pool));
+    }
+
+    @Test
+    public void testReplayRunsTheJournaledArrivalsInTheWindow(@TempDir Path dir) throws Exception {
+        OrderJournal journal = new OrderJournal(dir.toString(), true, 64);
+        journal.open();
+        LocalDateTime opening = LocalDateTime.of(2024, 1, 1, 7, 0);
+        for (long id = 1; id <= 40; id++) {
+            Order order = new Order();
+            order.setId(id);
+            order.setDrinkType("Latte");
+            order.setPrepTimeMinutes(4);
+            // One every 90s, journaled slightly out of order; the last 10 arrive after the window
+            order.setArrivalTime(opening.plusSeconds(90 * (id % 2 == 0 ? id - 1 : id + 1)));
+            journal.record(OrderJournal.EventType.CREATED, order);
+            journal.record(OrderJournal.EventType.CANCELLED, order); // other events are ignored
+        }
+        journal.close();
+
+        SimulationService replaying = new SimulationService(new PriorityService(Clock.systemDefaultZone()), journal);
+        SimulationService.SimulationReport report =
+                replaying.replayJournal(opening, opening.plusSeconds(90 * 31), 3, AssignmentMode.BALANCED);
+        assertEquals(30, report.getTotalOrders());
+        assertEquals(30, report.getServedOrders(), "Three baristas keep up with a 4-minute drink every 90s");
+        assertEquals(3, report.getBaristaWorkload().size());
+    }
+
+    @Test
+    public void testPercentilesAreOrdered() {
+        SimulationService.SimulationSummary summary = simulationService.runScenarios(8, 99L, pool);
+
+        assertTrue(summary.getP50WaitMinutes() <= summary.getP95WaitMinutes());
+        assertTrue(summary.getP95WaitMinutes() <= summary.getP99WaitMinutes());
+        assertTrue(summary.getComplaintRate() >= 0 && summary.getComplaintRate() <= 1);
+    }
+}
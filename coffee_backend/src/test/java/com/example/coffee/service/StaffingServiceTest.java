@@ -0,0 +1,94 @@
+package com.example.coffee.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StaffingServiceTest {
+
+    private final StaffingService staffingService = new StaffingService(new PriorityService(Clock.systemDefaultZone()));
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    public void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    private StaffingService.StaffingRequest request(Integer... arrivalsPerHour) {
+        StaffingService.StaffingRequest request = new StaffingService.StaffingRequest();
+        request.setArrivalsPerHour(List.of(arrivalsPerHour));
+        request.setScenarios(8);
+        return request;
+    }
+
+    @Test
+    public void testPeakHourGetsMoreBaristas() {
+        StaffingService.StaffingPlan plan = staffingService.plan(request(20, 90, 20), pool);
+        int[] levels = plan.getBaristasPerHour();
+
+        assertTrue(plan.isFeasible());
+        assertTrue(plan.getComplaintRate() <= 0.05, "complaint rate " + plan.getComplaintRate());
+        // The hour after the peak may keep its staff to work off the queue, the quiet hour before it can't
+        assertTrue(levels[1] > levels[0] && levels[1] >= levels[2], Arrays.toString(levels));
+        assertEquals(levels[0] + levels[1] + levels[2], plan.getBaristaHours());
+        assertTrue(plan.getTotalOrders() > 0);
+    }
+
+    @Test
+    public void testPlanDoesNotDependOnParallelism() {
+        StaffingService.StaffingRequest request = request(40, 120, 60, 30);
+        request.setMaxP95WaitMinutes(6.0);
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool three = new ForkJoinPool(3);
+        StaffingService.StaffingPlan serial;
+        StaffingService.StaffingPlan parallel;
+        try {
+            serial = staffingService.plan(request, single);
+            parallel = staffingService.plan(request, three);
+        } finally {
+            single.shutdownNow();
+            three.shutdownNow();
+        }
+
+        assertArrayEquals(serial.getBaristasPerHour(), parallel.getBaristasPerHour());
+        assertEquals(serial.getComplaintRate(), parallel.getComplaintRate());
+        assertEquals(serial.getP95WaitMinutes(), parallel.getP95WaitMinutes());
+    }
+
+    @Test
+    public void testTooFewBaristasIsInfeasible() {
+        StaffingService.StaffingRequest request = request(200);
+        request.setMaxBaristas(1);
+        StaffingService.StaffingPlan plan = staffingService.plan(request, pool);
+
+        assertFalse(plan.isFeasible());
+        assertArrayEquals(new int[]{1}, plan.getBaristasPerHour());
+        assertTrue(plan.getComplaintRate() > 0.05);
+    }
+
+    @Test
+    public void testUnplannableRequestsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> staffingService.plan(request(), pool));
+        StaffingService.StaffingRequest negative = request(10, -1);
+        assertThrows(IllegalArgumentException.class, () -> staffingService.plan(negative, pool));
+    }
+
+    @Test
+    public void testOrderVolumeIsCapped() {
+        StaffingService.StaffingRequest rush = request(StaffingService.MAX_ORDERS_PER_HOUR + 1);
+        assertThrows(IllegalArgumentException.class, () -> staffingService.plan(rush, pool));
+
+        // Every hour within the cap, but too many days of them
+        Integer[] busyDay = new Integer[24];
+        Arrays.fill(busyDay, StaffingService.MAX_ORDERS_PER_HOUR);
+        StaffingService.StaffingRequest longRun = request(busyDay);
+        longRun.setScenarios(1000);
+        assertThrows(IllegalArgumentException.class, () -> staffingService.plan(longRun, pool));
+    }
+}
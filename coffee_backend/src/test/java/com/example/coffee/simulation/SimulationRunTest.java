@@ -0,0 +1,220 @@
+package com.example.coffee.simulation;
+
+import com.example.coffee.dispatch.AssignmentMode;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulationRunTest {
+
+    @Test
+    public void testAbandonmentAndWaits() {
+        // One barista, three 6-minute drinks at once: the third would start after 12 minutes and is abandoned
+        SimulationRun run = new SimulationRun(3, 1);
+        run.addOrder(0, 6, false);
+        run.addOrder(0, 6, false);
+        run.addOrder(0, 6, false);
+        run.execute();
+
+        assertEquals(2, run.getServed());
+        assertEquals(1, run.getComplaints());
+        assertEquals(360 + 720, run.getTotalWaitSeconds());
+    }
+
+    @Test
+    public void testReplayGivesSameResult() {
+        SimulationRun run = loadRandomRun(300, 11L);
+        run.execute();
+        long wait = run.getTotalWaitSeconds();
+        int complaints = run.getComplaints();
+
+        run.execute();
+        assertEquals(wait, run.getTotalWaitSeconds());
+        assertEquals(complaints, run.getComplaints());
+    }
+
+    // Allocation-rate check for the hot loop: once sized, execute() must not allocate
+    @Test
+    public void testExecuteDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        SimulationRun run = loadRandomRun(300, 3L, AssignmentMode.OPTIMAL);
+        for (int i = 0; i < 20; i++) run.execute(); // warm up
+
+        int runs = 200;
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < runs; i++) run.execute();
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(allocated < 1024, "execute() allocated " + allocated + " bytes");
+    }
+
+    @Test
+    public void testEveryModeDispatchesTheSameOrders() {
+        for (AssignmentMode mode : AssignmentMode.values()) {
+            SimulationRun run = loadRandomRun(300, 5L, mode);
+            run.execute();
+            long wait = run.getTotalWaitSeconds();
+            run.execute();
+            assertEquals(wait, run.getTotalWaitSeconds(), mode + " replays identically");
+            assertTrue(run.getServed() > 0 && run.getServed() <= 300, mode + " served " + run.getServed());
+        }
+    }
+
+    @Test
+    public void testStreamedArrivalsMatchLoadedOnes() {
+        for (AssignmentMode mode : AssignmentMode.values()) {
+            SimulationRun loaded = loadRandomRun(2000, 17L, mode);
+            loaded.execute();
+
+            SimulationRun streamed = new SimulationRun(0, 3, mode);
+            streamed.execute(randomArrivals(2000, 17L));
+            assertEquals(2000, streamed.getArrivalCount());
+            assertEquals(loaded.getServed(), streamed.getServed(), mode.toString());
+            assertEquals(loaded.getComplaints(), streamed.getComplaints(), mode.toString());
+            assertEquals(loaded.getTotalWaitSeconds(), streamed.getTotalWaitSeconds(), mode.toString());
+        }
+    }
+
+    @Test
+    public void testLongTraceReusesSlots() {
+        // Half a million 2-minute drinks, one every 45s, for three baristas: never more than a few waiting
+        int orders = 500_000;
+        SimulationRun run = new SimulationRun(0, 3);
+        run.execute(new ArrivalSource() {
+            int i = -1;
+
+            @Override
+            public boolean next() {
+                return ++i < orders;
+            }
+
+            @Override
+            public long arrivalSecond() {
+                return 45L * i;
+            }
+
+            @Override
+            public int prepMinutes() {
+                return 2;
+            }
+
+            @Override
+            public boolean loyal() {
+                return false;
+            }
+        });
+
+        assertEquals(orders, run.getArrivalCount());
+        assertEquals(orders, run.getServed());
+        assertTrue(run.slotCapacity() <= 16, "grew to " + run.slotCapacity() + " slots");
+    }
+
+    @Test
+    public void testOutOfOrderArrivalJoinsThePreviousOne() {
+        SimulationRun run = new SimulationRun(0, 1);
+        long[] arrivals = {0, 120, 60};
+        run.execute(new ArrivalSource() {
+            int i = -1;
+
+            @Override
+            public boolean next() {
+                return ++i < arrivals.length;
+            }
+
+            @Override
+            public long arrivalSecond() {
+                return arrivals[i];
+            }
+
+            @Override
+            public int prepMinutes() {
+                return 1;
+            }
+
+            @Override
+            public boolean loyal() {
+                return false;
+            }
+        });
+
+        assertEquals(3, run.getServed());
+        assertEquals(60 + 60 + 120, run.getTotalWaitSeconds(), "the third order counts as arriving at 120s");
+    }
+
+    @Test
+    public void testOffDutyBaristaStartsWithTheirShift() {
+        // One barista for the first hour, two after: the early rush queues up until the second one arrives
+        SimulationRun run = new SimulationRun(4, 2);
+        run.setStaffing(new int[]{1, 2});
+        run.addOrder(3000, 6, false);
+        run.addOrder(3000, 6, false);
+        run.addOrder(3000, 6, false);
+        run.addOrder(3700, 1, false);
+        run.execute();
+
+        assertEquals(4, run.getServed());
+        assertEquals(3, run.getBaristaOrderCount(0));
+        assertEquals(1, run.getBaristaOrderCount(1), "barista 1 starts at 3600s with the last of the rush");
+        // Arrival to drink done: 360, 720, 600 + 360, and 20 + 60 for the one waiting on barista 0
+        assertEquals(360 + 720 + 960 + 80, run.getTotalWaitSeconds());
+
+        assertThrows(IllegalArgumentException.class, () -> run.setStaffing(new int[]{3}));
+        assertThrows(IllegalArgumentException.class, () -> run.setStaffing(new int[0]));
+    }
+
+    // The same orders as loadRandomRun, as a source
+    private ArrivalSource randomArrivals(int orders, long seed) {
+        SplittableRandom rand = new SplittableRandom(seed);
+        int[] preps = {1, 2, 2, 4, 4, 6};
+        return new ArrivalSource() {
+            int i;
+            long t;
+            int prep;
+            boolean loyal;
+
+            @Override
+            public boolean next() {
+                if (i++ == orders) return false;
+                t += rand.nextInt(60);
+                prep = preps[rand.nextInt(preps.length)];
+                loyal = rand.nextDouble() > 0.8;
+                return true;
+            }
+
+            @Override
+            public long arrivalSecond() {
+                return t;
+            }
+
+            @Override
+            public int prepMinutes() {
+                return prep;
+            }
+
+            @Override
+            public boolean loyal() {
+                return loyal;
+            }
+        };
+    }
+
+    private SimulationRun loadRandomRun(int orders, long seed) {
+        return loadRandomRun(orders, seed, AssignmentMode.BALANCED);
+    }
+
+    private SimulationRun loadRandomRun(int orders, long seed, AssignmentMode mode) {
+        SplittableRandom rand = new SplittableRandom(seed);
+        int[] preps = {1, 2, 2, 4, 4, 6};
+        SimulationRun run = new SimulationRun(orders, 3, mode);
+        long t = 0;
+        for (int i = 0; i < orders; i++) {
+            t += rand.nextInt(60);
+            run.addOrder(t, preps[rand.nextInt(preps.length)], rand.nextDouble() > 0.8);
+        }
+        return run;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.coffee.simulation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceArrivalSourceTest {
+
+    // (second, prep, loyal) of every arrival
+    private List<String> readAll(TraceArrivalSource source) {
+        List<String> arrivals = new ArrayList<>();
+        while (source.next()) {
+            arrivals.add(source.arrivalSecond() + "/" + source.prepMinutes() + "/" + source.loyal());
+        }
+        return arrivals;
+    }
+
+    @Test
+    public void testOrderJournalCsvExport() {
+        String csv = """
+                order_id,event,time,arrival_time,barista_id,station_id,prep_minutes,loyalty_member,drink_type
+                1,CREATED,2024-01-01T07:00:00,2024-01-01T07:00:00,,,4,false,Latte
+                1,STARTED,2024-01-01T07:00:10,2024-01-01T07:00:00,1,,4,false,Latte
+                2,CREATED,2024-01-01T07:01:30,2024-01-01T07:01:30,,,6,true,Specialty
+                """;
+        assertEquals(List.of("0/4/false", "90/6/true"), readAll(new TraceArrivalSource(new StringReader(csv))));
+    }
+
+    @Test
+    public void testCsvWithDrinkNamesAndAWindow() {
+        String csv = """
+                drinkType,arrivalTime,isLoyaltyMember
+                Espresso,2024-01-01T06:59:00,false
+                "Cold Brew",2024-01-01T07:00:30,yes
+
+                Cappuccino,2024-01-01T07:02:00Z,0
+                Latte,2024-01-01T08:00:00,1
+                """;
+        TraceArrivalSource source = new TraceArrivalSource(new StringReader(csv),
+                LocalDateTime.of(2024, 1, 1, 7, 0), LocalDateTime.of(2024, 1, 1, 8, 0));
+        assertEquals(List.of("30/1/true", "120/4/false"), readAll(source));
+        assertEquals(2, source.getCount());
+    }
+
+    @Test
+    public void testNdjsonWithSecondOffsets() {
+        String ndjson = """
+                {"arrival": 0, "drink": "Latte", "loyal": true}
+                {"arrival": 12.5, "prep_minutes": 3, "loyal": false, "note": "extra fields are ignored"}
+                {"arrival": 40, "drink": "Tea"}
+                """;
+        assertEquals(List.of("0/4/true", "12/3/false", "40/2/false"),
+                readAll(new TraceArrivalSource(new StringReader(ndjson))));
+    }
+
+    @Test
+    public void testUnreadableLinesAreRejected() {
+        TraceArrivalSource noTime = new TraceArrivalSource(new StringReader("drink_type\nLatte\n"));
+        assertThrows(IllegalArgumentException.class, noTime::next);
+
+        TraceArrivalSource badTime = new TraceArrivalSource(new StringReader("arrival_time\n2024-01-01\n"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, badTime::next);
+        assertTrue(e.getMessage().startsWith("Trace line 2"), e.getMessage());
+    }
+}
@@ -2,29 +2,52 @@ import { useState, useEffect } from 'react';
 import api from '../api';
 import type { Order, Barista, Customer } from '../types';
 
+// Finished orders only arrive as events, so keep the most recent ones for the stats and drop the rest
+const MAX_FINISHED_ORDERS = 200;
+
+const upsert = <T extends { id: number }>(list: T[], item: T): T[] => {
+    const index = list.findIndex(existing => existing.id === item.id);
+    if (index < 0) return [...list, item];
+    const next = [...list];
+    next[index] = item;
+    return next;
+};
+
+const upsertOrder = (orders: Order[], order: Order): Order[] => {
+    const next = upsert(orders, order);
+    const finished = next.filter(o => o.status === 'COMPLETED' || o.status === 'CANCELLED');
+    if (finished.length <= MAX_FINISHED_ORDERS) return next;
+    const stale = new Set(finished.slice(0, finished.length - MAX_FINISHED_ORDERS).map(o => o.id));
+    return next.filter(o => !stale.has(o.id));
+};
+
 export const useCoffeeSystem = () => {
     const [orders, setOrders] = useState<Order[]>([]);
     const [baristas, setBaristas] = useState<Barista[]>([]);
     const [loading, setLoading] = useState(true);
 
-    const fetchData = async () => {
-        try {
-            const [ordersRes, baristasRes] = await Promise.all([
-                api.get('/orders'),
-                api.get('/baristas')
-            ]);
-            setOrders(ordersRes.data);
-            setBaristas(baristasRes.data);
+    useEffect(() => {
+        // The server sends a snapshot of active orders and baristas, then only what changes.
+        // EventSource reconnects on its own and every reconnect starts with a fresh snapshot.
+        const source = new EventSource(`${api.defaults.baseURL}/board/events`);
+
+        source.addEventListener('snapshot', (event) => {
+            const board = JSON.parse((event as MessageEvent).data);
+            setOrders(board.orders);
+            setBaristas(board.baristas);
             setLoading(false);
-        } catch (error) {
-            console.error("Failed to fetch data", error);
-        }
-    };
+        });
+        source.addEventListener('order', (event) => {
+            const order: Order = JSON.parse((event as MessageEvent).data);
+            setOrders(current => upsertOrder(current, order));
+        });
+        source.addEventListener('barista', (event) => {
+            const barista: Barista = JSON.parse((event as MessageEvent).data);
+            setBaristas(current => upsert(current, barista));
+        });
+        source.onerror = () => console.error("Live board connection lost, reconnecting");
 
-    useEffect(() => {
-        fetchData(); // Initial fetch
-        const interval = setInterval(fetchData, 2000); // Poll every 2 seconds
-        return () => clearInterval(interval);
+        return () => source.close();
     }, []);
 
     const placeOrder = async (drinkType: string, customerName: string, customer: Customer | null = null) => {
@@ -54,8 +77,7 @@ export const useCoffeeSystem = () => {
             customer: customer ? { id: customer.id } : null
         };
 
-        await api.post('/orders', newOrder);
-        fetchData(); // Refresh immediately
+        await api.post('/orders', newOrder); // The new order comes back as an event
     };
 
     return { orders, baristas, loading, placeOrder };